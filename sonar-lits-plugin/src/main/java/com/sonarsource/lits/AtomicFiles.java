@@ -0,0 +1,182 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.function.Consumer;
+import javax.annotation.CheckForNull;
+
+/**
+ * Publishes files and directories, so that concurrent readers never see them partially written.
+ * Files are replaced atomically. Directories are replaced by two renames, so readers, which don't hold {@link #lock(File)},
+ * might briefly not find them.
+ */
+final class AtomicFiles {
+
+  private static final String TMP_SUFFIX = ".tmp";
+
+  private AtomicFiles() {
+  }
+
+  /**
+   * Blocks until exclusive lock on given file is acquired - lock file is created next to it, and deleted by {@link #release(File, FileLock)}.
+   */
+  static FileLock lock(File file) {
+    Path lockFile = lockFile(file);
+    try {
+      Files.createDirectories(lockFile.getParent());
+      boolean deleted = deletesLockFiles(lockFile);
+      while (true) {
+        Object fileKey = deleted ? fileKey(lockFile) : null;
+        FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+          FileLock lock = channel.lock();
+          // previous holder might have deleted the opened file meanwhile, in which case lock no longer excludes others
+          if (!deleted || (fileKey != null && fileKey.equals(fileKey(lockFile)))) {
+            return lock;
+          }
+        } catch (IOException | RuntimeException e) {
+          channel.close();
+          throw e;
+        }
+        channel.close();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Deletes lock file, unless file system doesn't allow to detect that it was deleted, and releases lock.
+   */
+  static void release(File file, FileLock lock) {
+    try {
+      Path lockFile = lockFile(file);
+      if (deletesLockFiles(lockFile)) {
+        Files.deleteIfExists(lockFile);
+      }
+      lock.release();
+      lock.channel().close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Path lockFile(File file) {
+    return file.toPath().resolveSibling("." + file.getName() + ".lock");
+  }
+
+  /**
+   * Lock files are deleted only if their identity is exposed by file system, since otherwise waiting holders can't detect deletion.
+   */
+  private static boolean deletesLockFiles(Path lockFile) throws IOException {
+    return Files.readAttributes(lockFile.getParent(), BasicFileAttributes.class).fileKey() != null;
+  }
+
+  @CheckForNull
+  private static Object fileKey(Path file) throws IOException {
+    try {
+      return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Writes content of directory into temporary sibling and then replaces given directory by it.
+   * Non-empty directory can't be replaced by a single rename, so given directory doesn't exist between the two renames.
+   * Should be called under {@link #lock(File)}, which also allows to remove leftovers of interrupted writes.
+   */
+  static void publishDirectory(File dir, Consumer<File> writer) {
+    Path target = dir.toPath();
+    try {
+      Files.createDirectories(target.getParent());
+      deleteLeftovers(target);
+      Path tmp = Files.createTempDirectory(target.getParent(), target.getFileName() + TMP_SUFFIX);
+      writer.accept(tmp.toFile());
+      if (Files.exists(target)) {
+        Path old = Files.createTempDirectory(target.getParent(), target.getFileName() + TMP_SUFFIX);
+        move(target, old);
+        move(tmp, target);
+        IssuesChecker.forceDelete(old.toFile());
+      } else {
+        move(tmp, target);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  interface Content {
+    void writeTo(OutputStream out) throws IOException;
+  }
+
+  static void write(File file, byte[] content) {
+    write(file, out -> out.write(content));
+  }
+
+  /**
+   * Writes content into temporary sibling and then replaces given file by it.
+   */
+  static void write(File file, Content content) {
+    Path target = file.toPath();
+    try {
+      Path tmp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), TMP_SUFFIX);
+      try {
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+          content.writeTo(out);
+        }
+        move(tmp, target);
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static void deleteLeftovers(Path target) throws IOException {
+    String prefix = target.getFileName() + TMP_SUFFIX;
+    try (DirectoryStream<Path> siblings = Files.newDirectoryStream(target.getParent(), path -> path.getFileName().toString().startsWith(prefix))) {
+      for (Path sibling : siblings) {
+        IssuesChecker.forceDelete(sibling.toFile());
+      }
+    }
+  }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Previous findings, which are consumed by matching them with new ones.
+ * Findings are added by {@link BaselineStore}, unless they are served by {@link BaselineServer}.
+ */
+interface Baseline {
+
+  /**
+   * Consumes one occurrence of given finding.
+   *
+   * @return false if there is no such finding
+   */
+  boolean remove(IssueKey issueKey);
+
+  /**
+   * @return keys of all components with findings, including consumed ones
+   */
+  Collection<String> componentKeys();
+
+  /**
+   * @return findings which were not consumed, indexed by {@link IssueKey#componentKey}
+   */
+  Map<String, Multiset<IssueKey>> remaining();
+
+  /**
+   * Releases resources, after which baseline must not be used.
+   */
+  default void close() {
+    // nothing to release by default
+  }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Loads previous findings in a background thread, so that loading overlaps with execution of sensors.
+ *
+ * <p>Since the file system is not yet indexed when loading starts, all components are loaded.
+ */
+final class BaselinePrefetch {
+
+  private static final Logger LOG = Loggers.get(BaselinePrefetch.class);
+
+  private final File dir;
+  private final Future<Baseline> future;
+
+  /**
+   * Keys of components with previous findings of rules, which are not active, indexed by rule key.
+   * Must be accessed only after completion of {@link #future}.
+   */
+  private final Map<String, Set<String>> inactiveRules = new HashMap<>();
+  private long loadDuration;
+
+  /**
+   * @param selectedRule only files of rules accepted by this predicate are considered, others are skipped silently
+   * @param activeRule if not null, only findings of rules accepted by this predicate are kept, only components of others are collected
+   * @param manifest if not null, content of files is verified against it
+   */
+  BaselinePrefetch(File dir, Supplier<BaselineStore> baselineFactory, Predicate<String> selectedRule, @Nullable Predicate<String> activeRule, @Nullable Manifest manifest) {
+    this.dir = dir;
+    ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "LITS baseline prefetch");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.future = executor.submit(() -> load(baselineFactory.get(), selectedRule, activeRule, manifest));
+    executor.shutdown();
+  }
+
+  private Baseline load(BaselineStore result, Predicate<String> selectedRule, @Nullable Predicate<String> activeRule, @Nullable Manifest manifest) {
+    long start = System.nanoTime();
+    // whether rule must be reported as inactive depends on analyzed components, which are not yet known
+    BaselineStore store = activeRule != null ? new ActiveRulesStore(result, activeRule) : result;
+    Dump.load(dir, store, selectedRule, componentKey -> true, componentKey -> {
+    }, manifest);
+    loadDuration = System.nanoTime() - start;
+    return result;
+  }
+
+  /**
+   * Blocks until loading completes.
+   */
+  Baseline await() {
+    long start = System.nanoTime();
+    Baseline result;
+    try {
+      result = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading " + dir, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Unable to load " + dir, e.getCause());
+    }
+    LOG.info("Loaded {} in background in {} ms, analysis waited {} ms", dir,
+      TimeUnit.NANOSECONDS.toMillis(loadDuration), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    return result;
+  }
+
+  /**
+   * Must be called only after {@link #await()}.
+   *
+   * @return keys of components with previous findings of rules, which are not active, indexed by rule key
+   */
+  Map<String, Set<String>> inactiveRules() {
+    return inactiveRules;
+  }
+
+  /**
+   * Keeps findings of active rules, but only keys of components for others.
+   */
+  private final class ActiveRulesStore implements BaselineStore {
+
+    private final BaselineStore delegate;
+    private final Predicate<String> activeRule;
+
+    ActiveRulesStore(BaselineStore delegate, Predicate<String> activeRule) {
+      this.delegate = delegate;
+      this.activeRule = activeRule;
+    }
+
+    @Override
+    public void add(String componentKey, String ruleKey, int line) {
+      if (activeRule.test(ruleKey)) {
+        delegate.add(componentKey, ruleKey, line);
+      } else {
+        inactiveRules.computeIfAbsent(ruleKey, k -> new HashSet<>()).add(componentKey);
+      }
+    }
+
+    @Override
+    public boolean remove(IssueKey issueKey) {
+      return delegate.remove(issueKey);
+    }
+
+    @Override
+    public Collection<String> componentKeys() {
+      return delegate.componentKeys();
+    }
+
+    @Override
+    public Map<String, Multiset<IssueKey>> remaining() {
+      return delegate.remaining();
+    }
+  }
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps previous findings in memory across analyses, and serves them on loopback interface to {@link RemoteBaseline}.
+ * Findings are reloaded when digest of {@link Manifest} changes, and are verified against it,
+ * so that a dump which doesn't match its manifest is never served.
+ *
+ * <p>Usage: {@code java -cp sonar-lits-plugin.jar com.sonarsource.lits.BaselineServer <dump directory> <port>}
+ *
+ * <p>Runs outside of scanner, so it must depend only on the JDK: plugin API is not part of plugin jar.
+ */
+public final class BaselineServer {
+
+  private static final Logger LOG = Logger.getLogger(BaselineServer.class.getName());
+
+  static final byte HELLO = 'H';
+  static final byte COMPONENT_KEYS = 'K';
+  static final byte COMPONENTS = 'C';
+
+  private final File dir;
+  private final ServerSocket serverSocket;
+
+  private String signature;
+  private Map<String, Multiset<IssueKey>> issues;
+
+  BaselineServer(File dir, int port) throws IOException {
+    this.dir = dir.getAbsoluteFile();
+    this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      throw new IllegalArgumentException("Usage: BaselineServer <dump directory> <port>");
+    }
+    BaselineServer server = new BaselineServer(new File(args[0]), Integer.parseInt(args[1]));
+    server.snapshot();
+    LOG.log(Level.INFO, "Serving {0} on port {1}", new Object[] {server.dir, Integer.toString(server.port())});
+    server.serve();
+  }
+
+  int port() {
+    return serverSocket.getLocalPort();
+  }
+
+  void serve() throws IOException {
+    while (!serverSocket.isClosed()) {
+      Socket socket;
+      try {
+        socket = serverSocket.accept();
+      } catch (IOException e) {
+        if (serverSocket.isClosed()) {
+          return;
+        }
+        throw e;
+      }
+      Thread thread = new Thread(() -> handle(socket), "lits-baseline-server");
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  void close() throws IOException {
+    serverSocket.close();
+  }
+
+  /**
+   * @return findings of current version of dump, which must not be modified
+   */
+  synchronized Map<String, Multiset<IssueKey>> snapshot() {
+    String current = signature(dir);
+    if (issues == null || !current.equals(signature)) {
+      LOG.log(Level.INFO, "Loading {0}", dir);
+      Map<String, Multiset<IssueKey>> result = new HashMap<>();
+      Dump.load(dir, new HeapBaseline(result), componentKey -> true, componentKey -> {
+      }, Manifest.read(dir));
+      issues = result;
+      signature = current;
+    }
+    return issues;
+  }
+
+  /**
+   * Digest of manifest, which lists digests of all files of dump.
+   * Dumps without manifest are identified by names, sizes and modification times of their files.
+   */
+  private static String signature(File dir) {
+    MessageDigest digest = Manifest.newDigest();
+    Path manifest = dir.toPath().resolve(Manifest.FILE_NAME);
+    if (Files.isRegularFile(manifest)) {
+      try {
+        digest.update(Files.readAllBytes(manifest));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    } else {
+      File[] files = dir.listFiles();
+      if (files != null) {
+        Arrays.sort(files);
+        for (File file : files) {
+          digest.update((file.getName() + " " + file.length() + " " + file.lastModified() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+      }
+    }
+    return Manifest.toHex(digest.digest());
+  }
+
+  private void handle(Socket socket) {
+    try (
+      Socket s = socket;
+      DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))
+    ) {
+      Map<String, Multiset<IssueKey>> current = null;
+      while (true) {
+        byte command;
+        try {
+          command = in.readByte();
+        } catch (EOFException e) {
+          return;
+        }
+        if (command == HELLO) {
+          String requestedDir = in.readUTF();
+          if (!dir.equals(new File(requestedDir).getAbsoluteFile())) {
+            refuse(out, "Serving " + dir);
+            return;
+          }
+          try {
+            // consistent view for the whole analysis
+            current = snapshot();
+          } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Unable to load {0}: {1}", new Object[] {dir, e.getMessage()});
+            refuse(out, "Unable to load " + dir + ": " + e.getMessage());
+            return;
+          }
+          out.writeBoolean(true);
+        } else if (command == COMPONENT_KEYS && current != null) {
+          writeStrings(out, current.keySet());
+        } else if (command == COMPONENTS && current != null) {
+          int size = in.readInt();
+          for (int i = 0; i < size; i++) {
+            Multiset<IssueKey> componentIssues = current.get(in.readUTF());
+            writeIssues(out, componentIssues != null ? componentIssues : Multiset.empty());
+          }
+        } else {
+          throw new IllegalStateException("Unexpected command: " + command);
+        }
+        out.flush();
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.log(Level.WARNING, "Unable to serve request: {0}", e.getMessage());
+    }
+  }
+
+  private static void refuse(DataOutputStream out, String reason) throws IOException {
+    out.writeBoolean(false);
+    out.writeUTF(reason);
+    out.flush();
+  }
+
+  static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+    out.writeInt(values.size());
+    for (String value : values) {
+      out.writeUTF(value);
+    }
+  }
+
+  static List<String> readStrings(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    List<String> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(in.readUTF());
+    }
+    return result;
+  }
+
+  private static void writeIssues(DataOutputStream out, Multiset<IssueKey> issues) throws IOException {
+    out.writeInt(issues.size());
+    for (IssueKey issueKey : issues) {
+      out.writeUTF(issueKey.ruleKey);
+      out.writeInt(issueKey.line);
+    }
+  }
+
+  static Multiset<IssueKey> readIssues(DataInputStream in, String componentKey) throws IOException {
+    int size = in.readInt();
+    Multiset<IssueKey> result = Multiset.create();
+    for (int i = 0; i < size; i++) {
+      result.add(new IssueKey(componentKey, in.readUTF(), in.readInt()));
+    }
+    return result;
+  }
+
+}
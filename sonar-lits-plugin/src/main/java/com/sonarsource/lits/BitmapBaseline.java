@@ -0,0 +1,87 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps lines of findings of each component and rule as {@link LineSet},
+ * so that rules reporting findings on most of the lines cost bits rather than objects per finding.
+ */
+final class BitmapBaseline implements BaselineStore {
+
+  private final Map<String, Map<String, LineSet>> components = new HashMap<>();
+
+  /**
+   * Line sets, which were created since last query, and which should be compressed once all their lines are added.
+   */
+  private final List<LineSet> created = new ArrayList<>();
+
+  @Override
+  public void add(String componentKey, String ruleKey, int line) {
+    components.computeIfAbsent(componentKey, k -> new HashMap<>())
+      .computeIfAbsent(ruleKey, k -> {
+        LineSet lines = new LineSet();
+        created.add(lines);
+        return lines;
+      })
+      .add(line);
+  }
+
+  @Override
+  public boolean remove(IssueKey issueKey) {
+    optimize();
+    Map<String, LineSet> rules = components.get(issueKey.componentKey);
+    if (rules == null) {
+      return false;
+    }
+    LineSet lines = rules.get(issueKey.ruleKey);
+    return lines != null && lines.remove(issueKey.line);
+  }
+
+  @Override
+  public Collection<String> componentKeys() {
+    return components.keySet();
+  }
+
+  @Override
+  public Map<String, Multiset<IssueKey>> remaining() {
+    Map<String, Multiset<IssueKey>> result = new HashMap<>();
+    for (Map.Entry<String, Map<String, LineSet>> component : components.entrySet()) {
+      String componentKey = component.getKey();
+      for (Map.Entry<String, LineSet> rule : component.getValue().entrySet()) {
+        if (!rule.getValue().isEmpty()) {
+          Multiset<IssueKey> issues = result.computeIfAbsent(componentKey, k -> Multiset.create());
+          rule.getValue().forEach(line -> issues.add(new IssueKey(componentKey, rule.getKey(), line)));
+        }
+      }
+    }
+    return result;
+  }
+
+  private void optimize() {
+    if (!created.isEmpty()) {
+      created.forEach(LineSet::optimize);
+      created.clear();
+    }
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.Collection;
+
+/**
+ * Set of strings, which answers membership queries with possible false positives, but without false negatives.
+ */
+final class BloomFilter {
+
+  private static final int BITS_PER_ELEMENT = 10;
+  private static final int HASHES = 3;
+
+  private final long[] bits;
+  private final int mask;
+
+  private BloomFilter(int expectedElements) {
+    int size = Long.SIZE;
+    while (size < (long) expectedElements * BITS_PER_ELEMENT && size < 1 << 30) {
+      size <<= 1;
+    }
+    this.bits = new long[size / Long.SIZE];
+    this.mask = size - 1;
+  }
+
+  static BloomFilter of(Collection<String> elements) {
+    BloomFilter result = create(elements.size());
+    for (String element : elements) {
+      result.put(element);
+    }
+    return result;
+  }
+
+  /**
+   * @return empty filter, which keeps its rate of false positives for up to given number of elements
+   */
+  static BloomFilter create(int expectedElements) {
+    return new BloomFilter(expectedElements);
+  }
+
+  void put(String element) {
+    int h1 = element.hashCode();
+    int h2 = secondHash(h1);
+    for (int i = 0; i < HASHES; i++) {
+      int bit = (h1 + i * h2) & mask;
+      bits[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  boolean mightContain(String element) {
+    int h1 = element.hashCode();
+    int h2 = secondHash(h1);
+    for (int i = 0; i < HASHES; i++) {
+      int bit = (h1 + i * h2) & mask;
+      if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int secondHash(int hash) {
+    int h = hash * 0x9E3779B9;
+    // must be odd to visit different bits
+    return (h ^ (h >>> 16)) | 1;
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.annotation.CheckForNull;
+import org.sonar.api.config.Configuration;
+
+/**
+ * Memory and time limits of a LITS run, see {@link LITSPlugin#MEMORY_BUDGET_PROPERTY} and {@link LITSPlugin#TIME_BUDGET_PROPERTY}.
+ */
+final class Budget {
+
+  /**
+   * Checks are performed only once per this number of calls, so that they can be done on hot paths.
+   */
+  private static final int CHECK_INTERVAL = 1024;
+
+  private final long maxUsedMemory;
+  private final long maxDuration;
+  private final LongSupplier usedMemory;
+  private final long start = System.nanoTime();
+  private int calls = 0;
+
+  /**
+   * @param memoryMegabytes maximal amount of used heap, 0 means no limit
+   * @param timeSeconds maximal duration since creation, 0 means no limit
+   */
+  Budget(long memoryMegabytes, long timeSeconds) {
+    this(memoryMegabytes, timeSeconds, () -> {
+      Runtime runtime = Runtime.getRuntime();
+      return runtime.totalMemory() - runtime.freeMemory();
+    });
+  }
+
+  /**
+   * @param usedMemory amount of used heap in bytes
+   */
+  Budget(long memoryMegabytes, long timeSeconds, LongSupplier usedMemory) {
+    this.maxUsedMemory = memoryMegabytes * 1024 * 1024;
+    this.maxDuration = TimeUnit.SECONDS.toNanos(timeSeconds);
+    this.usedMemory = usedMemory;
+  }
+
+  static Budget of(Configuration settings) {
+    return new Budget(
+      settings.getLong(LITSPlugin.MEMORY_BUDGET_PROPERTY).orElse(0L),
+      settings.getLong(LITSPlugin.TIME_BUDGET_PROPERTY).orElse(0L));
+  }
+
+  /**
+   * @return description of exceeded limit, or null if budget is not exceeded or if check was skipped
+   */
+  @CheckForNull
+  String check() {
+    if ((calls++ % CHECK_INTERVAL) != 0) {
+      return null;
+    }
+    if (maxUsedMemory > 0 && usedMemory.getAsLong() > maxUsedMemory) {
+      return "memory budget of " + (maxUsedMemory / 1024 / 1024) + " MB exceeded";
+    }
+    if (maxDuration > 0 && System.nanoTime() - start > maxDuration) {
+      return "time budget of " + TimeUnit.NANOSECONDS.toSeconds(maxDuration) + " s exceeded";
+    }
+    return null;
+  }
+
+}
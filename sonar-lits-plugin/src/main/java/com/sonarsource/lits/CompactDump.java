@@ -0,0 +1,347 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+/**
+ * Dump in a single binary file: {@link ComponentDictionary} of all components, followed by one section per rule
+ * with ids of components and {@link LineSet} of their lines. Sections are prefixed by their length, so that
+ * sections of rules, which are not needed, can be skipped without decoding.
+ */
+final class CompactDump {
+
+  static final String FILE_NAME = "dump.lits";
+
+  private static final int MAGIC = 0x4c495444;
+  private static final int VERSION = 1;
+
+  private CompactDump() {
+  }
+
+  static boolean exists(File dir) {
+    return new File(dir, FILE_NAME).isFile();
+  }
+
+  /**
+   * Writes issues in a single pass: sections are first written with ids of components in order of their appearance,
+   * and then copied after the dictionary, which can be built only once all components are known.
+   *
+   * @param issues in {@link Dump#ORDER}
+   */
+  static Manifest save(Iterator<IssueKey> issues, File dir) {
+    Map<String, Integer> provisionalIds = new HashMap<>();
+    List<String> componentKeys = new ArrayList<>();
+    File sections = new File(dir, FILE_NAME + ".sections");
+    MessageDigest digest = Manifest.newDigest();
+    int total = 0;
+    try {
+      Files.createDirectories(dir.toPath());
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(sections.toPath())))) {
+        Section section = new Section();
+        while (issues.hasNext()) {
+          IssueKey issueKey = issues.next();
+          if (!issueKey.ruleKey.equals(section.ruleKey)) {
+            section.writeTo(out);
+            section.start(issueKey.ruleKey);
+          }
+          Integer id = provisionalIds.get(issueKey.componentKey);
+          if (id == null) {
+            id = componentKeys.size();
+            provisionalIds.put(issueKey.componentKey, id);
+            componentKeys.add(issueKey.componentKey);
+          }
+          section.add(id, issueKey.line);
+          total++;
+        }
+        section.writeTo(out);
+        out.writeBoolean(false);
+      }
+      ComponentDictionary dictionary = ComponentDictionary.of(componentKeys);
+      int[] ids = new int[componentKeys.size()];
+      for (int i = 0; i < ids.length; i++) {
+        ids[i] = dictionary.id(componentKeys.get(i));
+      }
+      try (
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sections.toPath())));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+          new DigestOutputStream(Files.newOutputStream(new File(dir, FILE_NAME).toPath()), digest)))
+      ) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        dictionary.write(out);
+        copySections(in, out, ids);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      sections.delete();
+    }
+    Manifest manifest = new Manifest();
+    manifest.add(FILE_NAME, Manifest.toHex(digest.digest()), total);
+    manifest.write(dir);
+    return manifest;
+  }
+
+  /**
+   * Ids have fixed width, so that length of sections doesn't change.
+   */
+  private static void copySections(DataInputStream in, DataOutputStream out, int[] ids) throws IOException {
+    while (in.readBoolean()) {
+      out.writeBoolean(true);
+      out.writeUTF(in.readUTF());
+      out.writeInt(in.readInt());
+      int components = in.readInt();
+      out.writeInt(components);
+      for (int i = 0; i < components; i++) {
+        out.writeInt(ids[in.readInt()]);
+        LineSet.read(in).write(out);
+      }
+    }
+    out.writeBoolean(false);
+  }
+
+  /**
+   * Loads issues of rules and components accepted by given filters.
+   * Key of each component is decoded only once, so that all issues of a component share the same string.
+   *
+   * @param skippedRules receives keys of rules, which are not accepted and have issues
+   * @param manifest if not null, content of file is verified against it
+   * @return dictionary of all components of dump
+   */
+  static ComponentDictionary load(File dir, BaselineStore result, Predicate<String> ruleFilter, Consumer<String> skippedRules,
+    Predicate<String> componentFilter, Consumer<String> skippedComponents, @Nullable Manifest manifest) {
+    if (manifest != null) {
+      // sections might be skipped without reading, so content is verified before decoding
+      verify(new File(dir, FILE_NAME), manifest);
+    }
+    try (Reader reader = new Reader(dir, componentFilter, skippedComponents)) {
+      String ruleKey;
+      while ((ruleKey = reader.nextRule()) != null) {
+        if (ruleFilter.test(ruleKey)) {
+          reader.load(result);
+        } else {
+          skippedRules.accept(ruleKey);
+        }
+      }
+      return reader.dictionary;
+    }
+  }
+
+  private static void verify(File file, Manifest manifest) {
+    Manifest.Entry expected = manifest.get(FILE_NAME);
+    if (expected == null) {
+      throw new IllegalStateException("File is not listed in manifest: " + file);
+    }
+    MessageDigest digest = Manifest.newDigest();
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+      byte[] buffer = new byte[8192];
+      while (in.read(buffer) != -1) {
+        // only updates digest
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (!expected.hash.equals(Manifest.toHex(digest.digest()))) {
+      throw new IllegalStateException("Checksum mismatch: " + file);
+    }
+  }
+
+  /**
+   * Reads sections one at a time in order of their rules, so that a dump can be merged with other issues
+   * while it is read only once. Sections, which are not loaded, are skipped without decoding.
+   */
+  static final class Reader implements Closeable {
+    private final File file;
+    private final Predicate<String> componentFilter;
+    private final Consumer<String> skippedComponents;
+    private final DataInputStream in;
+    private final ComponentDictionary dictionary;
+    private final String[] componentKeys;
+    // 0 - not yet tested, 1 - accepted, 2 - skipped
+    private final byte[] accepted;
+    private String ruleKey;
+    private int unread;
+
+    Reader(File dir, Predicate<String> componentFilter, Consumer<String> skippedComponents) {
+      this.file = new File(dir, FILE_NAME);
+      this.componentFilter = componentFilter;
+      this.skippedComponents = skippedComponents;
+      try {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      this.dictionary = readHeader();
+      this.componentKeys = new String[dictionary.size()];
+      this.accepted = new byte[dictionary.size()];
+    }
+
+    private ComponentDictionary readHeader() {
+      boolean success = false;
+      try {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+          throw new IllegalStateException("Unsupported dump: " + file);
+        }
+        ComponentDictionary result = ComponentDictionary.read(in);
+        success = true;
+        return result;
+      } catch (IOException e) {
+        throw failure(e);
+      } finally {
+        if (!success) {
+          close();
+        }
+      }
+    }
+
+    /**
+     * Skips the rest of current section.
+     *
+     * @return key of rule of next section, or null if there are no more
+     */
+    @CheckForNull
+    String nextRule() {
+      try {
+        if (ruleKey != null && in.skipBytes(unread) != unread) {
+          throw new EOFException();
+        }
+        ruleKey = in.readBoolean() ? in.readUTF() : null;
+        unread = ruleKey != null ? in.readInt() : 0;
+        return ruleKey;
+      } catch (IOException e) {
+        throw failure(e);
+      }
+    }
+
+    /**
+     * Loads issues of current section, which belong to accepted components.
+     */
+    void load(BaselineStore result) {
+      String currentRuleKey = ruleKey;
+      try {
+        int components = in.readInt();
+        for (int i = 0; i < components; i++) {
+          int id = in.readInt();
+          LineSet lines = LineSet.read(in);
+          if (accepted[id] == 0) {
+            componentKeys[id] = dictionary.key(id);
+            accepted[id] = componentFilter.test(componentKeys[id]) ? (byte) 1 : 2;
+          }
+          if (accepted[id] == 1) {
+            String componentKey = componentKeys[id];
+            lines.forEach(line -> result.add(componentKey, currentRuleKey, line));
+          } else {
+            skippedComponents.accept(componentKeys[id]);
+          }
+        }
+        unread = 0;
+      } catch (IOException e) {
+        throw failure(e);
+      }
+    }
+
+    private RuntimeException failure(IOException e) {
+      return e instanceof EOFException ? new IllegalStateException("Truncated dump: " + file, e) : new UncheckedIOException(e);
+    }
+
+    @Override
+    public void close() {
+      try {
+        in.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Issues of one rule, buffered to know length of section before writing it.
+   */
+  private static final class Section {
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final DataOutputStream data = new DataOutputStream(buffer);
+    private String ruleKey;
+    private int components;
+    private int componentId = -1;
+    private LineSet lines;
+
+    void start(String ruleKey) {
+      this.ruleKey = ruleKey;
+      this.components = 0;
+      this.componentId = -1;
+      buffer.reset();
+    }
+
+    void add(int componentId, int line) throws IOException {
+      if (componentId != this.componentId) {
+        flushComponent();
+        this.componentId = componentId;
+        this.lines = new LineSet();
+      }
+      lines.add(line);
+    }
+
+    private void flushComponent() throws IOException {
+      if (componentId >= 0) {
+        lines.optimize();
+        data.writeInt(componentId);
+        lines.write(data);
+        components++;
+      }
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+      if (ruleKey == null) {
+        return;
+      }
+      flushComponent();
+      DataOutputStream dataOut = new DataOutputStream(out);
+      dataOut.writeBoolean(true);
+      dataOut.writeUTF(ruleKey);
+      dataOut.writeInt(4 + buffer.size());
+      dataOut.writeInt(components);
+      buffer.writeTo(dataOut);
+      dataOut.flush();
+    }
+  }
+
+}
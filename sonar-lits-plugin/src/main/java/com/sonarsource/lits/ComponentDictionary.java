@@ -0,0 +1,191 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Immutable sorted set of component keys with int ids, front-coded to take advantage of their long common prefixes:
+ * keys are grouped into blocks, first key of a block is stored as is, and each following one as length of prefix shared
+ * with the previous key plus remaining suffix. Keys are found by id through hash table over the dictionary.
+ */
+final class ComponentDictionary {
+
+  private static final int BLOCK_SIZE = 16;
+
+  /**
+   * For each key: length of shared prefix, length of suffix and suffix.
+   */
+  private final char[] data;
+  private final int size;
+  private final int[] blockOffsets;
+
+  /**
+   * Open-addressing table of ids + 1, 0 for free slot.
+   */
+  private final int[] table;
+  private final int[] hashes;
+
+  private ComponentDictionary(char[] data, int size) {
+    this.data = data;
+    this.size = size;
+    this.blockOffsets = new int[(size + BLOCK_SIZE - 1) / BLOCK_SIZE];
+    this.hashes = new int[size];
+    this.table = new int[Integer.highestOneBit(Math.max(1, size) * 2) * 2];
+    StringBuilder key = new StringBuilder();
+    int offset = 0;
+    for (int id = 0; id < size; id++) {
+      if (id % BLOCK_SIZE == 0) {
+        blockOffsets[id / BLOCK_SIZE] = offset;
+      }
+      int prefix = data[offset];
+      int suffix = data[offset + 1];
+      key.setLength(prefix);
+      key.append(data, offset + 2, suffix);
+      offset += 2 + suffix;
+      int hash = key.toString().hashCode();
+      hashes[id] = hash;
+      int slot = spread(hash) & (table.length - 1);
+      while (table[slot] != 0) {
+        slot = (slot + 1) & (table.length - 1);
+      }
+      table[slot] = id + 1;
+    }
+  }
+
+  static ComponentDictionary of(Collection<String> keys) {
+    List<String> sorted = new ArrayList<>(new HashSet<>(keys));
+    Collections.sort(sorted);
+    StringBuilder data = new StringBuilder();
+    String previous = "";
+    for (int id = 0; id < sorted.size(); id++) {
+      String key = sorted.get(id);
+      if (key.length() > Character.MAX_VALUE) {
+        throw new IllegalArgumentException("Component key is too long: " + key.substring(0, 100) + "...");
+      }
+      int prefix = id % BLOCK_SIZE == 0 ? 0 : commonPrefix(previous, key);
+      data.append((char) prefix).append((char) (key.length() - prefix)).append(key, prefix, key.length());
+      previous = key;
+    }
+    char[] chars = new char[data.length()];
+    data.getChars(0, data.length(), chars, 0);
+    return new ComponentDictionary(chars, sorted.size());
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return id of given key, or -1 if it is not in dictionary
+   */
+  int id(String key) {
+    int hash = key.hashCode();
+    int slot = spread(hash) & (table.length - 1);
+    while (table[slot] != 0) {
+      int id = table[slot] - 1;
+      if (hashes[id] == hash && keyEquals(id, key)) {
+        return id;
+      }
+      slot = (slot + 1) & (table.length - 1);
+    }
+    return -1;
+  }
+
+  boolean contains(String key) {
+    return id(key) >= 0;
+  }
+
+  String key(int id) {
+    if (id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("Id: " + id + ", size: " + size);
+    }
+    StringBuilder key = new StringBuilder();
+    int offset = blockOffsets[id / BLOCK_SIZE];
+    for (int i = id - id % BLOCK_SIZE; i <= id; i++) {
+      int prefix = data[offset];
+      int suffix = data[offset + 1];
+      key.setLength(prefix);
+      key.append(data, offset + 2, suffix);
+      offset += 2 + suffix;
+    }
+    return key.toString();
+  }
+
+  /**
+   * Compares without decoding: tracks how many leading chars of each key in the block match given one.
+   */
+  private boolean keyEquals(int id, String key) {
+    int offset = blockOffsets[id / BLOCK_SIZE];
+    int matched = 0;
+    for (int i = id - id % BLOCK_SIZE; ; i++) {
+      int prefix = data[offset];
+      int suffix = data[offset + 1];
+      offset += 2;
+      // otherwise this key differs from given one at the same position as the previous one
+      if (prefix <= matched) {
+        matched = prefix;
+        for (int j = 0; j < suffix && matched < key.length() && data[offset + j] == key.charAt(matched); j++) {
+          matched++;
+        }
+      }
+      if (i == id) {
+        return matched == key.length() && prefix + suffix == key.length();
+      }
+      offset += suffix;
+    }
+  }
+
+  void write(DataOutput out) throws IOException {
+    out.writeInt(size);
+    out.writeInt(data.length);
+    for (char c : data) {
+      out.writeChar(c);
+    }
+  }
+
+  static ComponentDictionary read(DataInput in) throws IOException {
+    int size = in.readInt();
+    char[] data = new char[in.readInt()];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = in.readChar();
+    }
+    return new ComponentDictionary(data, size);
+  }
+
+  private static int commonPrefix(String a, String b) {
+    int max = Math.min(a.length(), b.length());
+    int i = 0;
+    while (i < max && a.charAt(i) == b.charAt(i)) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int spread(int hash) {
+    int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+import javax.annotation.CheckForNull;
+
+/**
+ * New dump reconstructed from the previous one: previous findings, which were not matched, are removed and new findings are added.
+ * This way only differences need to be kept in memory during analysis. Previous dump is read one rule at a time,
+ * and only once, whatever is its format.
+ */
+final class DeltaDump implements Iterator<IssueKey>, Closeable {
+
+  private final Map<String, Multiset<IssueKey>> unmatched;
+  private final OldRules oldRules;
+  private final Iterator<IssueKey> newIssues;
+  private String nextOldRule;
+  private IssueKey nextNewIssue;
+  private Iterator<IssueKey> batch = Collections.emptyIterator();
+
+  private DeltaDump(OldRules oldRules, Map<String, Multiset<IssueKey>> unmatched, Iterator<IssueKey> newIssues) {
+    this.unmatched = unmatched;
+    this.oldRules = oldRules;
+    this.newIssues = newIssues;
+    this.nextOldRule = oldRules.next();
+    this.nextNewIssue = newIssues.hasNext() ? newIssues.next() : null;
+  }
+
+  /**
+   * @param ruleFilter rules of previous dump, which are part of new one
+   * @param componentFilter components of previous dump, which are part of new one
+   * @param unmatched previous findings, which are not part of new dump, indexed by component key; not modified
+   * @param newIssues findings, which are not part of previous dump, in {@link Dump#ORDER}
+   * @return all findings of new dump in {@link Dump#ORDER}, must be closed
+   */
+  static DeltaDump merge(File oldDump, Predicate<String> ruleFilter, Predicate<String> componentFilter, Map<String, Multiset<IssueKey>> unmatched, Iterator<IssueKey> newIssues) {
+    Map<String, Multiset<IssueKey>> copy = new HashMap<>();
+    unmatched.forEach((componentKey, issueKeys) -> {
+      if (!issueKeys.isEmpty()) {
+        copy.put(componentKey, Multiset.copyOf(issueKeys));
+      }
+    });
+    OldRules oldRules;
+    if (!oldDump.isDirectory()) {
+      oldRules = new JsonRules(Collections.emptyMap(), ruleFilter, componentFilter);
+    } else if (CompactDump.exists(oldDump)) {
+      oldRules = new CompactRules(new CompactDump.Reader(oldDump, componentFilter, componentKey -> {
+      }), ruleFilter);
+    } else {
+      oldRules = new JsonRules(Dump.index(oldDump), ruleFilter, componentFilter);
+    }
+    try {
+      return new DeltaDump(oldRules, copy, newIssues);
+    } catch (RuntimeException e) {
+      oldRules.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!batch.hasNext()) {
+      if (nextOldRule == null && nextNewIssue == null) {
+        return false;
+      }
+      batch = nextBatch();
+    }
+    return true;
+  }
+
+  @Override
+  public IssueKey next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return batch.next();
+  }
+
+  /**
+   * @return findings of the next rule
+   */
+  private Iterator<IssueKey> nextBatch() {
+    String ruleKey = nextNewIssue == null || (nextOldRule != null && nextOldRule.compareTo(nextNewIssue.ruleKey) <= 0)
+      ? nextOldRule
+      : nextNewIssue.ruleKey;
+    List<IssueKey> result = new ArrayList<>();
+    if (ruleKey.equals(nextOldRule)) {
+      Map<String, Multiset<IssueKey>> previous = new HashMap<>();
+      oldRules.load(new HeapBaseline(previous));
+      for (Multiset<IssueKey> issueKeys : previous.values()) {
+        for (IssueKey issueKey : issueKeys) {
+          Multiset<IssueKey> componentUnmatched = unmatched.get(issueKey.componentKey);
+          if (componentUnmatched == null || !componentUnmatched.remove(issueKey)) {
+            result.add(issueKey);
+          }
+        }
+      }
+      nextOldRule = oldRules.next();
+    }
+    while (nextNewIssue != null && nextNewIssue.ruleKey.equals(ruleKey)) {
+      result.add(nextNewIssue);
+      nextNewIssue = newIssues.hasNext() ? newIssues.next() : null;
+    }
+    result.sort(Dump.ORDER);
+    return result.iterator();
+  }
+
+  @Override
+  public void close() {
+    oldRules.close();
+  }
+
+  /**
+   * Rules of previous dump in order of their keys, which are read one at a time.
+   */
+  private interface OldRules extends Closeable {
+
+    /**
+     * @return key of the next rule, or null if there are no more
+     */
+    @CheckForNull
+    String next();
+
+    /**
+     * Loads findings of the rule returned by the last call of {@link #next()}.
+     */
+    void load(BaselineStore result);
+
+    @Override
+    void close();
+  }
+
+  private static final class JsonRules implements OldRules {
+    private final Map<String, File> files;
+    private final Iterator<String> ruleKeys;
+    private final Predicate<String> componentFilter;
+    private String ruleKey;
+
+    JsonRules(Map<String, File> files, Predicate<String> ruleFilter, Predicate<String> componentFilter) {
+      this.files = files;
+      this.ruleKeys = files.keySet().stream().filter(ruleFilter).sorted().iterator();
+      this.componentFilter = componentFilter;
+    }
+
+    @Override
+    public String next() {
+      ruleKey = ruleKeys.hasNext() ? ruleKeys.next() : null;
+      return ruleKey;
+    }
+
+    @Override
+    public void load(BaselineStore result) {
+      Dump.loadRule(files.get(ruleKey), result, componentFilter, componentKey -> {
+      }, null);
+    }
+
+    @Override
+    public void close() {
+      // files are opened only while loaded
+    }
+  }
+
+  /**
+   * Sections of compact dump are written in order of their rules, so that they are read through a single reader.
+   */
+  private static final class CompactRules implements OldRules {
+    private final CompactDump.Reader reader;
+    private final Predicate<String> ruleFilter;
+    private String ruleKey;
+
+    CompactRules(CompactDump.Reader reader, Predicate<String> ruleFilter) {
+      this.reader = reader;
+      this.ruleFilter = ruleFilter;
+    }
+
+    @Override
+    public String next() {
+      String previous = ruleKey;
+      do {
+        ruleKey = reader.nextRule();
+      } while (ruleKey != null && !ruleFilter.test(ruleKey));
+      if (ruleKey != null && previous != null && ruleKey.compareTo(previous) <= 0) {
+        throw new IllegalStateException("Rules of compact dump are not sorted: " + ruleKey);
+      }
+      return ruleKey;
+    }
+
+    @Override
+    public void load(BaselineStore result) {
+      reader.load(result);
+    }
+
+    @Override
+    public void close() {
+      reader.close();
+    }
+  }
+
+}
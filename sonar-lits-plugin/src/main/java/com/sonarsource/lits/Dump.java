@@ -16,107 +16,245 @@
  */
 package com.sonarsource.lits;
 
-import net.minidev.json.JSONArray;
-import net.minidev.json.JSONObject;
-import net.minidev.json.JSONValue;
-
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.Serializable;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 
 class Dump {
 
   private static final String EXT = "json";
 
+  /**
+   * Order in which issues are written.
+   */
+  static final Comparator<IssueKey> ORDER = new IssueKeyComparator();
+
   private Dump() {
   }
 
   static Map<String, Multiset<IssueKey>> load(File dir) {
+    return load(dir, componentKey -> true, componentKey -> {
+    });
+  }
+
+  static Map<String, Multiset<IssueKey>> load(File dir, Predicate<String> componentFilter, Consumer<String> skippedComponents) {
     Map<String, Multiset<IssueKey>> result = new HashMap<>();
+    load(dir, new HeapBaseline(result), componentFilter, skippedComponents, null);
+    return result;
+  }
+
+  /**
+   * Loads issues of components accepted by given filter.
+   * Issues of other components are not materialized, only keys of such components are passed to {@code skippedComponents}.
+   *
+   * @param manifest if not null, content of files is verified against it
+   * @return dictionary of all components if dump is in {@link CompactDump compact format}, null otherwise
+   */
+  @CheckForNull
+  static ComponentDictionary load(File dir, BaselineStore result, Predicate<String> componentFilter, Consumer<String> skippedComponents, @Nullable Manifest manifest) {
+    return load(dir, result, ruleKey -> true, componentFilter, skippedComponents, manifest);
+  }
+
+  /**
+   * Same as {@link #load(File, Baseline, Predicate, Consumer, Manifest)}, but issues of rules not accepted by {@code ruleFilter}
+   * are skipped without being parsed.
+   */
+  @CheckForNull
+  static ComponentDictionary load(File dir, BaselineStore result, Predicate<String> ruleFilter, Predicate<String> componentFilter, Consumer<String> skippedComponents,
+    @Nullable Manifest manifest) {
+    if (manifest != null) {
+      manifest.verifyListedFilesExist(dir);
+    }
+    if (CompactDump.exists(dir)) {
+      return CompactDump.load(dir, result, ruleFilter, ruleKey -> {
+      }, componentFilter, skippedComponents, manifest);
+    }
+    // the same components appear in files of many rules, so their keys are shared
+    Map<String, String> componentKeys = new HashMap<>();
+    for (File file : listJsonFiles(dir.toPath())) {
+      if (ruleFilter.test(ruleKeyFromFileName(file.getName()))) {
+        loadRule(file, result, componentFilter, skippedComponents, manifest, componentKeys);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return files of given directory indexed by rule key
+   */
+  static Map<String, File> index(File dir) {
+    if (CompactDump.exists(dir)) {
+      throw new IllegalStateException("Rules of compact dump can't be loaded separately: " + dir);
+    }
+    Map<String, File> result = new HashMap<>();
     for (File file : listJsonFiles(dir.toPath())) {
-      load(file, result);
+      result.put(ruleKeyFromFileName(file.getName()), file);
     }
     return result;
   }
 
   static void load(File file, Map<String, Multiset<IssueKey>> result) {
-    JSONObject json;
+    loadRule(file, new HeapBaseline(result), componentKey -> true, componentKey -> {
+    }, null);
+  }
+
+  /**
+   * @param manifest if not null, content of file is verified against it
+   */
+  static void loadRule(File file, BaselineStore result, Predicate<String> componentFilter, Consumer<String> skippedComponents, @Nullable Manifest manifest) {
+    loadRule(file, result, componentFilter, skippedComponents, manifest, new HashMap<>());
+  }
+
+  private static void loadRule(File file, BaselineStore result, Predicate<String> componentFilter, Consumer<String> skippedComponents, @Nullable Manifest manifest,
+    Map<String, String> componentKeys) {
+    String ruleKey = ruleKeyFromFileName(file.getName());
+    MessageDigest digest = manifest != null ? Manifest.newDigest() : null;
     try (
-      FileInputStream fis = new FileInputStream(file);
+      InputStream fis = digest != null ? new DigestInputStream(new FileInputStream(file), digest) : new FileInputStream(file);
       InputStreamReader in = new InputStreamReader(fis, StandardCharsets.UTF_8)
     ) {
-      json = (JSONObject) JSONValue.parse(in);
+      DumpReader.read(in, file.toString(), new DumpReader.Handler() {
+        private String componentKey;
+
+        @Override
+        public boolean component(String componentKey) {
+          if (!componentFilter.test(componentKey)) {
+            skippedComponents.accept(componentKey);
+            return false;
+          }
+          this.componentKey = componentKeys.computeIfAbsent(componentKey, k -> k);
+          return true;
+        }
+
+        @Override
+        public void line(int line) {
+          result.add(componentKey, ruleKey, line);
+        }
+      });
+      if (manifest != null) {
+        verify(file, fis, digest, manifest);
+      }
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     }
+  }
 
-    String ruleKey = ruleKeyFromFileName(file.getName());
-    for (Map.Entry<String, Object> component : json.entrySet()) {
-      String componentKey = component.getKey();
+  private static void verify(File file, InputStream in, MessageDigest digest, Manifest manifest) throws IOException {
+    // decoder might not consume the end of stream
+    byte[] buffer = new byte[1024];
+    while (in.read(buffer) != -1) {
+      // only updates digest
+    }
+    Manifest.Entry expected = manifest.get(file.getName());
+    if (expected == null) {
+      throw new IllegalStateException("File is not listed in manifest: " + file);
+    }
+    if (!expected.hash.equals(Manifest.toHex(digest.digest()))) {
+      throw new IllegalStateException("Checksum mismatch: " + file);
+    }
+  }
 
-      Multiset<IssueKey> issues = result.get(componentKey);
-      if (issues == null) {
-        issues = Multiset.create();
-        result.put(componentKey, issues);
-      }
+  /**
+   * Groups issues by rule and component, so that only lines need to be sorted.
+   */
+  static Manifest save(List<IssueKey> issues, File dir) {
+    Map<String, Map<String, IntList>> rules = new HashMap<>();
+    for (IssueKey issueKey : issues) {
+      rules.computeIfAbsent(issueKey.ruleKey, k -> new HashMap<>())
+        .computeIfAbsent(issueKey.componentKey, k -> new IntList())
+        .add(issueKey.line);
+    }
 
-      JSONArray lines = (JSONArray) component.getValue();
-      for (Object line : lines) {
-        issues.add(new IssueKey(componentKey, ruleKey, (Integer) line));
+    Writer writer = new Writer(dir);
+    for (String ruleKey : sorted(rules.keySet())) {
+      Map<String, IntList> components = rules.get(ruleKey);
+      writer.startRule(ruleKey);
+      for (String componentKey : sorted(components.keySet())) {
+        IntList lines = components.get(componentKey);
+        lines.sort();
+        writer.component(componentKey, lines);
       }
+      writer.endRule();
     }
+    return writer.close();
   }
 
-  static void save(List<IssueKey> issues, File dir) {
-    try {
-      Files.createDirectories(dir.toPath());
-    } catch (IOException e) {
-      throw new UncheckedIOException(e);
-    }
-
-    issues.sort(new IssueKeyComparator());
+  private static List<String> sorted(Collection<String> keys) {
+    List<String> result = new ArrayList<>(keys);
+    Collections.sort(result);
+    return result;
+  }
 
-    PrintStream out = null;
+  /**
+   * @param issues in {@link #ORDER}
+   */
+  static Manifest save(Iterator<IssueKey> issues, File dir) {
+    Writer writer = new Writer(dir);
+    IntList lines = new IntList();
     String prevRuleKey = null;
     String prevComponentKey = null;
-    for (IssueKey issueKey : issues) {
-      if (!issueKey.ruleKey.equals(prevRuleKey)) {
-        if (out != null) {
-          endRule(out);
+    while (issues.hasNext()) {
+      IssueKey issueKey = issues.next();
+      if (!issueKey.ruleKey.equals(prevRuleKey) || !issueKey.componentKey.equals(prevComponentKey)) {
+        if (prevComponentKey != null) {
+          writer.component(prevComponentKey, lines);
+          lines.clear();
         }
-        try {
-          out = new PrintStream(Files.newOutputStream(dir.toPath().resolve(ruleKeyToFileName(issueKey.ruleKey))), /* autoFlush: */ true, StandardCharsets.UTF_8.name());
-        } catch (IOException e) {
-          throw new UncheckedIOException(e);
+        if (!issueKey.ruleKey.equals(prevRuleKey)) {
+          if (prevRuleKey != null) {
+            writer.endRule();
+          }
+          writer.startRule(issueKey.ruleKey);
         }
-        out.print("{");
-        startComponent(out, issueKey.componentKey);
-      } else if (!issueKey.componentKey.equals(prevComponentKey)) {
-        endComponent(out);
-        out.print(",");
-        startComponent(out, issueKey.componentKey);
-      } else {
-        out.print(",");
       }
-      out.print("\n" + issueKey.line);
+      lines.add(issueKey.line);
       prevComponentKey = issueKey.componentKey;
       prevRuleKey = issueKey.ruleKey;
     }
-    if (out != null) {
-      endRule(out);
+    if (prevRuleKey != null) {
+      writer.component(prevComponentKey, lines);
+      writer.endRule();
+    }
+    return writer.close();
+  }
+
+  /**
+   * Deletes files of rules, which are not listed in given manifest, and compact dump, if it is not listed either.
+   */
+  static void deleteStale(File dir, Manifest manifest) {
+    for (File file : listJsonFiles(dir.toPath())) {
+      if (manifest.get(file.getName()) == null) {
+        IssuesChecker.forceDelete(file);
+      }
+    }
+    if (CompactDump.exists(dir) && manifest.get(CompactDump.FILE_NAME) == null) {
+      IssuesChecker.forceDelete(new File(dir, CompactDump.FILE_NAME));
     }
   }
 
@@ -128,20 +266,6 @@ class Dump {
     return fileName.replaceFirst("-", ":").substring(0, fileName.length() - EXT.length() - 1);
   }
 
-  private static void startComponent(PrintStream out, String componentKey) {
-    out.print("\n\"" + componentKey + "\": [");
-  }
-
-  private static void endComponent(PrintStream out) {
-    out.print("\n]");
-  }
-
-  private static void endRule(PrintStream out) {
-    endComponent(out);
-    out.print("\n}\n");
-    out.close();
-  }
-
   private static List<File> listJsonFiles(Path dir) {
     try (Stream<Path> paths = Files.list(dir)) {
       List<File> files = new ArrayList<>();
@@ -155,6 +279,84 @@ class Dump {
     }
   }
 
+  /**
+   * Writes files of rules together with {@link Manifest}.
+   */
+  private static final class Writer {
+    private final Path dir;
+    private final Manifest manifest = new Manifest();
+    private final MessageDigest digest = Manifest.newDigest();
+    private PrintStream out;
+    private String ruleKey;
+    private int ruleIssues;
+
+    Writer(File dir) {
+      this.dir = dir.toPath();
+      try {
+        Files.createDirectories(this.dir);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    void startRule(String ruleKey) {
+      this.ruleKey = ruleKey;
+      this.ruleIssues = 0;
+      try {
+        OutputStream fileOut = new DigestOutputStream(Files.newOutputStream(dir.resolve(ruleKeyToFileName(ruleKey))), digest);
+        out = new PrintStream(new BufferedOutputStream(fileOut), /* autoFlush: */ false, StandardCharsets.UTF_8.name());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      out.print("{");
+    }
+
+    void component(String componentKey, IntList lines) {
+      if (ruleIssues > 0) {
+        out.print(",");
+      }
+      out.print("\n\"" + escape(componentKey) + "\": [");
+      for (int i = 0; i < lines.size(); i++) {
+        if (i > 0) {
+          out.print(",");
+        }
+        out.print("\n" + lines.get(i));
+      }
+      out.print("\n]");
+      ruleIssues += lines.size();
+    }
+
+    private static String escape(String value) {
+      StringBuilder sb = null;
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if (c == '"' || c == '\\' || c < 0x20) {
+          if (sb == null) {
+            sb = new StringBuilder(value.length() + 8).append(value, 0, i);
+          }
+          sb.append(c < 0x20 ? String.format("\\u%04x", (int) c) : ("\\" + c));
+        } else if (sb != null) {
+          sb.append(c);
+        }
+      }
+      return sb == null ? value : sb.toString();
+    }
+
+    void endRule() {
+      out.print("\n}\n");
+      out.close();
+      if (out.checkError()) {
+        throw new UncheckedIOException(new IOException("Unable to write " + dir.resolve(ruleKeyToFileName(ruleKey))));
+      }
+      manifest.add(ruleKeyToFileName(ruleKey), Manifest.toHex(digest.digest()), ruleIssues);
+    }
+
+    Manifest close() {
+      manifest.write(dir.toFile());
+      return manifest;
+    }
+  }
+
   private static class IssueKeyComparator implements Comparator<IssueKey>, Serializable {
     private static final long serialVersionUID = 1;
 
@@ -16,9 +16,13 @@
  */
 package com.sonarsource.lits;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 import org.sonar.api.batch.Phase;
 import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputComponent;
@@ -33,11 +37,18 @@ import org.sonar.api.batch.sensor.issue.NewIssue;
 import org.sonar.api.batch.sensor.issue.NewIssueLocation;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.scanner.sensor.ProjectSensor;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 
 // must be public for SQ picocontainer
 @Phase(name = Phase.Name.POST)
 public class DumpPhase implements ProjectSensor {
 
+  private static final Logger LOG = Loggers.get(DumpPhase.class);
+
+  private static final byte[] NO_DIFFERENCES = {1};
+
   private final IssuesChecker checker;
   private final ActiveRules activeRules;
 
@@ -57,33 +68,131 @@ public class DumpPhase implements ProjectSensor {
     // disable IssueFilter
     checker.disabled = true;
     Set<InputDir> inputDirs = new HashSet<>();
+    List<InputComponent> components = new ArrayList<>();
     FileSystem fs = context.fileSystem();
     for (InputFile inputFile : fs.inputFiles(fs.predicates().all())) {
       InputDir inputDir = fs.inputDir(inputFile.file());
-      if (inputDir != null && !inputDirs.contains(inputDir)) {
-        createMissingIssues(context, inputDir);
-        inputDirs.add(inputDir);
+      if (inputDir != null && inputDirs.add(inputDir) && checker.sample.contains(inputDir.key())) {
+        components.add(inputDir);
+      }
+      if (checker.sample.contains(inputFile.key())) {
+        components.add(inputFile);
+      }
+    }
+    for (IssuesChecker other : checker.others()) {
+      for (InputComponent component : components) {
+        other.checkBudget();
+        createMissingIssues(context, other, component, false);
       }
-      createMissingIssues(context, inputFile);
+    }
+    boolean incremental = checker.analyzerFingerprint() != null && checker.baselineDigest() != null && context.isCacheEnabled();
+    if (incremental) {
+      components = reuseUnchanged(context, components);
+    }
+    checker.checkpoint(Snapshot.FILTERED, components.stream().map(InputComponent::key).collect(Collectors.toList()));
+    for (InputComponent component : components) {
+      checker.checkBudget();
+      createMissingIssues(context, checker, component, true);
+      createSummaries(context, component, checker.reportLimit.remove(component.key()), "");
+    }
+    if (incremental) {
+      cacheVerdicts(context, components);
+    }
+    // e.g. issues on project
+    for (String componentKey : new ArrayList<>(checker.reportLimit.componentKeys())) {
+      createSummaries(context, context.project(), checker.reportLimit.remove(componentKey), componentKey + ": ");
     }
     save();
   }
 
-  private void createMissingIssues(SensorContext context, InputComponent resource) {
-    Multiset<IssueKey> componentIssues = checker.getByComponentKey(resource.key());
+  /**
+   * Previous findings of files, which did not change and had no differences in previous analysis with the same analyzers and baseline,
+   * are kept in new dump without comparing them, since analyzers might not even report findings for such files.
+   * Files, for which analyzers reported some findings, were analyzed, so they are compared as usual.
+   *
+   * @return components, which still need to be compared
+   */
+  private List<InputComponent> reuseUnchanged(SensorContext context, List<InputComponent> components) {
+    List<InputComponent> result = new ArrayList<>();
+    int reused = 0;
+    for (InputComponent component : components) {
+      String cacheKey = cacheKey(component);
+      if (component.isFile()
+        && ((InputFile) component).status() == InputFile.Status.SAME
+        && context.previousCache().contains(cacheKey)
+        && !checker.hasFindings(component.key())
+        && !checker.hasDifferences(component.key())) {
+        checker.carryOver(component.key());
+        context.nextCache().copyFromPrevious(cacheKey);
+        reused++;
+      } else {
+        result.add(component);
+      }
+    }
+    LOG.info("Reused results of {} unchanged files", reused);
+    return result;
+  }
+
+  /**
+   * Remembers files without differences for the next analysis.
+   */
+  private void cacheVerdicts(SensorContext context, List<InputComponent> components) {
+    for (InputComponent component : components) {
+      if (component.isFile() && !checker.hasDifferences(component.key())) {
+        context.nextCache().write(cacheKey(component), NO_DIFFERENCES);
+      }
+    }
+  }
+
+  /**
+   * Verdict depends on previous findings too, so it is not reused when compared with another baseline.
+   */
+  private String cacheKey(InputComponent component) {
+    return "lits:" + checker.analyzerFingerprint() + ":" + checker.baselineDigest() + ":" + component.key();
+  }
+
+  /**
+   * @param report whether differences should be reported as issues, which is the case only for the first baseline
+   */
+  private void createMissingIssues(SensorContext context, IssuesChecker baselineChecker, InputComponent resource, boolean report) {
+    List<IssuesChecker.DeferredIssue> deferredIssues = baselineChecker.matchMoved(resource.key());
+    if (!deferredIssues.isEmpty()) {
+      baselineChecker.disabled = true;
+      for (IssuesChecker.DeferredIssue deferredIssue : deferredIssues) {
+        // new issue, which was not moved => create
+        baselineChecker.newIssue(deferredIssue.issueKey);
+        if (!report || baselineChecker.degraded || !baselineChecker.reportLimit.report(deferredIssue.issueKey, false)) {
+          continue;
+        }
+        // only rule, line and message of original issue are known at this point
+        NewIssue newIssue = context.newIssue();
+        newIssue
+          .forRule(RuleKey.parse(deferredIssue.issueKey.ruleKey))
+          .at(newIssue.newLocation()
+            .on(resource)
+            .message(deferredIssue.message != null ? deferredIssue.message : "New")
+            .at(((InputFile) resource).selectLine(deferredIssue.issueKey.line)))
+          .save();
+      }
+      baselineChecker.disabled = false;
+    }
+    Multiset<IssueKey> componentIssues = baselineChecker.getByComponentKey(resource.key());
     if (!componentIssues.isEmpty()) {
-      checker.disabled = true;
-      for (IssueKey issueKey : checker.getByComponentKey(resource.key())) {
+      baselineChecker.disabled = true;
+      for (IssueKey issueKey : baselineChecker.getByComponentKey(resource.key())) {
         // missing issue => create
-        checker.different = true;
+        baselineChecker.different = true;
         RuleKey ruleKey = RuleKey.parse(issueKey.ruleKey);
         ActiveRule activeRule = activeRules.find(ruleKey);
         if (activeRule == null) {
           // rule not active => skip it
-          checker.inactiveRule(issueKey.ruleKey);
+          baselineChecker.inactiveRule(issueKey.ruleKey);
+          continue;
+        }
+        baselineChecker.missingIssue(issueKey);
+        if (!report || baselineChecker.degraded || !baselineChecker.reportLimit.report(issueKey, true)) {
           continue;
         }
-        checker.differences++;
         NewIssue newIssue = context.newIssue();
         NewIssueLocation location = newIssue.newLocation()
           .on(resource)
@@ -97,19 +206,55 @@ public class DumpPhase implements ProjectSensor {
           .at(location)
           .save();
       }
-      checker.disabled = false;
+      baselineChecker.disabled = false;
       componentIssues.clear();
     }
   }
 
+  /**
+   * Creates one issue per rule for differences beyond {@link LITSPlugin#REPORT_LIMIT_PROPERTY}.
+   */
+  private void createSummaries(SensorContext context, InputComponent resource, Map<String, ReportLimit.Overflow> overflows, String prefix) {
+    if (overflows.isEmpty()) {
+      return;
+    }
+    checker.disabled = true;
+    for (Map.Entry<String, ReportLimit.Overflow> entry : overflows.entrySet()) {
+      ReportLimit.Overflow overflow = entry.getValue();
+      NewIssue newIssue = context.newIssue();
+      newIssue
+        .forRule(RuleKey.parse(entry.getKey()))
+        .at(newIssue.newLocation()
+          .on(resource)
+          .message(prefix + overflow.message()));
+      if (overflow.missingLines.size() > 0) {
+        newIssue.overrideSeverity(Severity.BLOCKER);
+      }
+      newIssue.save();
+    }
+    checker.disabled = false;
+  }
+
   void save() {
-    for (Map.Entry<String, Multiset<IssueKey>> entry : checker.getPrevious().entrySet()) {
-      if (!entry.getValue().isEmpty()) {
-        checker.different = true;
-        checker.missingResource(entry.getKey());
+    // failure for one baseline should not prevent to save others
+    MessageException exception = null;
+    for (IssuesChecker other : checker.others()) {
+      try {
+        save(other);
+      } catch (MessageException e) {
+        exception = e;
       }
     }
-    checker.save();
+    save(checker);
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  private static void save(IssuesChecker baselineChecker) {
+    baselineChecker.reportNotAnalyzedComponents();
+    baselineChecker.checkpoint(Snapshot.MISSING, Collections.emptyList());
+    baselineChecker.save();
   }
 
 }
@@ -0,0 +1,242 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Reader of files of dump, which are JSON objects mapping component keys to arrays of lines.
+ * For compatibility with existing dumps, strings can be enclosed in single quotes.
+ * Unlike json-smart, which was used before and kept the last value, duplicate keys are rejected: lines are passed to handler
+ * as they are read, so previous lines of the same key can't be discarded. Dumps written by LITS never contain duplicate keys.
+ */
+final class DumpReader {
+
+  interface Handler {
+    /**
+     * @return false to skip lines of this component
+     */
+    boolean component(String componentKey);
+
+    void line(int line);
+  }
+
+  private static final int EOF = -1;
+
+  private final Reader in;
+  private final String source;
+  private final char[] buffer = new char[8192];
+  private int pos;
+  private int limit;
+
+  private int c;
+  private int line = 1;
+  private int column = 0;
+
+  private final StringBuilder sb = new StringBuilder();
+
+  private DumpReader(Reader in, String source) {
+    this.in = in;
+    this.source = source;
+  }
+
+  /**
+   * @param source used in error messages
+   */
+  static void read(Reader in, String source, Handler handler) throws IOException {
+    new DumpReader(in, source).readObject(handler);
+  }
+
+  private void readObject(Handler handler) throws IOException {
+    next();
+    skipWhitespaces();
+    expect('{');
+    if (c != '}') {
+      Set<String> componentKeys = new HashSet<>();
+      while (true) {
+        int keyLine = line;
+        int keyColumn = column;
+        String componentKey = readString();
+        if (!componentKeys.add(componentKey)) {
+          throw error(keyLine, keyColumn, "duplicate key '" + componentKey + "'");
+        }
+        expect(':');
+        readLines(handler.component(componentKey) ? handler : null);
+        if (c != ',') {
+          break;
+        }
+        next();
+        skipWhitespaces();
+      }
+    }
+    expect('}');
+    if (c != EOF) {
+      throw error("expected end of input");
+    }
+  }
+
+  private void readLines(@Nullable Handler handler) throws IOException {
+    expect('[');
+    if (c != ']') {
+      while (true) {
+        int value = readInt();
+        if (handler != null) {
+          handler.line(value);
+        }
+        skipWhitespaces();
+        if (c != ',') {
+          break;
+        }
+        next();
+        skipWhitespaces();
+      }
+    }
+    expect(']');
+  }
+
+  private String readString() throws IOException {
+    int quote = c;
+    if (quote != '"' && quote != '\'') {
+      throw error("expected string");
+    }
+    sb.setLength(0);
+    next();
+    while (c != quote) {
+      if (c == EOF) {
+        throw error("unterminated string");
+      } else if (c < 0x20) {
+        throw error("control character in string");
+      } else if (c == '\\') {
+        next();
+        sb.append(readEscaped());
+      } else {
+        sb.append((char) c);
+      }
+      next();
+    }
+    next();
+    skipWhitespaces();
+    return sb.toString();
+  }
+
+  private char readEscaped() throws IOException {
+    switch (c) {
+      case '"':
+      case '\'':
+      case '\\':
+      case '/':
+        return (char) c;
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+          next();
+          int digit = Character.digit(c, 16);
+          if (c == EOF || digit < 0) {
+            throw error("expected hexadecimal digit");
+          }
+          value = value * 16 + digit;
+        }
+        return (char) value;
+      default:
+        throw error("invalid escape sequence");
+    }
+  }
+
+  private int readInt() throws IOException {
+    boolean negative = c == '-';
+    if (negative) {
+      next();
+    }
+    if (c < '0' || c > '9') {
+      throw error("expected number");
+    }
+    long value = 0;
+    if (c == '0') {
+      next();
+    } else {
+      while (c >= '0' && c <= '9') {
+        value = value * 10 + (c - '0');
+        if (value > (long) Integer.MAX_VALUE + 1) {
+          throw error("number out of range");
+        }
+        next();
+      }
+    }
+    value = negative ? -value : value;
+    if (value > Integer.MAX_VALUE) {
+      throw error("number out of range");
+    }
+    return (int) value;
+  }
+
+  private void expect(char expected) throws IOException {
+    if (c != expected) {
+      throw error("expected '" + expected + "'");
+    }
+    next();
+    skipWhitespaces();
+  }
+
+  private void skipWhitespaces() throws IOException {
+    while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+      next();
+    }
+  }
+
+  private void next() throws IOException {
+    if (c == '\n') {
+      line++;
+      column = 1;
+    } else {
+      column++;
+    }
+    if (pos == limit) {
+      limit = in.read(buffer);
+      pos = 0;
+      if (limit <= 0) {
+        limit = 0;
+        c = EOF;
+        return;
+      }
+    }
+    c = buffer[pos++];
+  }
+
+  private IllegalStateException error(String message) {
+    String found = c == EOF ? "end of input" : ("'" + (char) c + "'");
+    return error(line, column, message + ", found " + found);
+  }
+
+  private IllegalStateException error(int errorLine, int errorColumn, String message) {
+    return new IllegalStateException("Invalid dump " + source + " at " + errorLine + ":" + errorColumn + ": " + message);
+  }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorted runs of new findings written to disk, so that they don't need to be kept on heap until {@link Dump#save}.
+ */
+final class DumpSpill implements Closeable {
+
+  private static final byte SAME_COMPONENT = 0;
+  private static final byte NEW_COMPONENT = 1;
+  private static final byte NEW_RULE = 2;
+
+  private final Path dir;
+  private final List<Path> runs = new ArrayList<>();
+
+  /**
+   * Merges, which might still have open runs, closed at the latest by {@link #close()}.
+   */
+  private final List<Merge> merges = new ArrayList<>();
+
+  private DumpSpill(Path dir) {
+    this.dir = dir;
+  }
+
+  static DumpSpill create() {
+    try {
+      return new DumpSpill(Files.createTempDirectory("lits-spill"));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  int runs() {
+    return runs.size();
+  }
+
+  /**
+   * Writes given issues as a new sorted run and clears the list.
+   */
+  void write(List<IssueKey> issues) {
+    issues.sort(Dump.ORDER);
+    Path run = dir.resolve("run-" + runs.size());
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+      out.writeInt(issues.size());
+      String prevRuleKey = null;
+      String prevComponentKey = null;
+      for (IssueKey issueKey : issues) {
+        if (!issueKey.ruleKey.equals(prevRuleKey)) {
+          out.writeByte(NEW_RULE);
+          out.writeUTF(issueKey.ruleKey);
+          out.writeUTF(issueKey.componentKey);
+        } else if (!issueKey.componentKey.equals(prevComponentKey)) {
+          out.writeByte(NEW_COMPONENT);
+          out.writeUTF(issueKey.componentKey);
+        } else {
+          out.writeByte(SAME_COMPONENT);
+        }
+        out.writeInt(issueKey.line);
+        prevRuleKey = issueKey.ruleKey;
+        prevComponentKey = issueKey.componentKey;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    runs.add(run);
+    issues.clear();
+  }
+
+  /**
+   * Runs are closed once fully consumed, or when merge is closed, whichever comes first.
+   *
+   * @return all spilled issues together with given ones, in {@link Dump#ORDER}
+   */
+  Merge merge(List<IssueKey> issues) {
+    issues.sort(Dump.ORDER);
+    Merge merge = new Merge();
+    merges.add(merge);
+    merge.add(new Cursor(issues.iterator()));
+    for (Path run : runs) {
+      RunIterator runIterator = new RunIterator(run);
+      merge.runIterators.add(runIterator);
+      merge.add(new Cursor(runIterator));
+    }
+    return merge;
+  }
+
+  /**
+   * Also closes merges, which were abandoned before being fully consumed.
+   */
+  @Override
+  public void close() {
+    merges.forEach(Merge::close);
+    merges.clear();
+    runs.clear();
+    IssuesChecker.forceDelete(dir.toFile());
+  }
+
+  static final class Merge implements Iterator<IssueKey>, Closeable {
+    private final PriorityQueue<Cursor> queue = new PriorityQueue<>((left, right) -> Dump.ORDER.compare(left.head, right.head));
+    private final List<RunIterator> runIterators = new ArrayList<>();
+
+    private Merge() {
+    }
+
+    private void add(Cursor cursor) {
+      if (cursor.advance()) {
+        queue.add(cursor);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !queue.isEmpty();
+    }
+
+    @Override
+    public IssueKey next() {
+      Cursor cursor = queue.poll();
+      if (cursor == null) {
+        throw new NoSuchElementException();
+      }
+      IssueKey result = cursor.head;
+      add(cursor);
+      return result;
+    }
+
+    /**
+     * Closes runs, which were not fully consumed. Merge is empty afterwards.
+     */
+    @Override
+    public void close() {
+      queue.clear();
+      runIterators.forEach(RunIterator::close);
+      runIterators.clear();
+    }
+  }
+
+  private static class Cursor {
+    private final Iterator<IssueKey> iterator;
+    private IssueKey head;
+
+    Cursor(Iterator<IssueKey> iterator) {
+      this.iterator = iterator;
+    }
+
+    boolean advance() {
+      if (!iterator.hasNext()) {
+        return false;
+      }
+      head = iterator.next();
+      return true;
+    }
+  }
+
+  private static class RunIterator implements Iterator<IssueKey> {
+    private final DataInputStream in;
+    private int remaining;
+    private String ruleKey;
+    private String componentKey;
+
+    RunIterator(Path run) {
+      try {
+        in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+        remaining = in.readInt();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (remaining == 0) {
+        close();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return remaining > 0;
+    }
+
+    @Override
+    public IssueKey next() {
+      if (remaining == 0) {
+        throw new NoSuchElementException();
+      }
+      try {
+        byte tag = in.readByte();
+        if (tag == NEW_RULE) {
+          ruleKey = in.readUTF();
+          componentKey = in.readUTF();
+        } else if (tag == NEW_COMPONENT) {
+          componentKey = in.readUTF();
+        }
+        IssueKey result = new IssueKey(componentKey, ruleKey, in.readInt());
+        remaining--;
+        if (remaining == 0) {
+          close();
+        }
+        return result;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    void close() {
+      remaining = 0;
+      try {
+        in.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+}
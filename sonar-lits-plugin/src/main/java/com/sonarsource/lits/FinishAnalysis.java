@@ -0,0 +1,76 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import org.sonar.api.utils.MessageException;
+
+/**
+ * Finishes interrupted analysis from its snapshot, see {@link LITSPlugin#SNAPSHOT_PROPERTY}:
+ * computes differences and saves dump, but doesn't report issues.
+ *
+ * <p>Usage: {@code java -cp sonar-lits-plugin.jar:sonar-plugin-api.jar:slf4j-api.jar com.sonarsource.lits.FinishAnalysis <snapshot>}
+ *
+ * <p>Plugin API and SLF4J are provided by scanner, so they are not part of plugin jar and must be added to classpath
+ * in the versions plugin was built with. Progress is logged only when an SLF4J provider is also added, e.g. slf4j-simple,
+ * whereas failure is always printed to standard error.
+ */
+public final class FinishAnalysis {
+
+  private FinishAnalysis() {
+  }
+
+  public static void main(String[] args) {
+    if (args.length != 1) {
+      throw new IllegalArgumentException("Usage: FinishAnalysis <snapshot>");
+    }
+    try {
+      finish(new File(args[0]));
+    } catch (MessageException e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  static void finish(File snapshotFile) {
+    Snapshot snapshot = Snapshot.read(snapshotFile);
+    IssuesChecker checker = new IssuesChecker(snapshot, snapshotFile);
+    if (snapshot.phase == Snapshot.FILTERED) {
+      Set<String> activeRuleKeys = new HashSet<>(snapshot.activeRuleKeys);
+      for (String componentKey : snapshot.analyzedComponentKeys) {
+        for (IssuesChecker.DeferredIssue deferredIssue : checker.matchMoved(componentKey)) {
+          checker.newIssue(deferredIssue.issueKey);
+        }
+        Multiset<IssueKey> componentIssues = checker.getByComponentKey(componentKey);
+        for (IssueKey issueKey : componentIssues) {
+          checker.different = true;
+          if (!activeRuleKeys.contains(issueKey.ruleKey)) {
+            checker.inactiveRule(issueKey.ruleKey);
+          } else {
+            checker.missingIssue(issueKey);
+          }
+        }
+        componentIssues.clear();
+      }
+      checker.reportNotAnalyzedComponents();
+    }
+    checker.save();
+  }
+
+}
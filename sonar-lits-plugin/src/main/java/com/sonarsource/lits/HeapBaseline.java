@@ -0,0 +1,62 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps findings as {@link IssueKey} objects, grouped by component.
+ */
+final class HeapBaseline implements BaselineStore {
+
+  private final Map<String, Multiset<IssueKey>> issues;
+
+  HeapBaseline() {
+    this(new HashMap<>());
+  }
+
+  HeapBaseline(Map<String, Multiset<IssueKey>> issues) {
+    this.issues = issues;
+  }
+
+  @Override
+  public void add(String componentKey, String ruleKey, int line) {
+    issues.computeIfAbsent(componentKey, k -> Multiset.create()).add(new IssueKey(componentKey, ruleKey, line));
+  }
+
+  @Override
+  public boolean remove(IssueKey issueKey) {
+    Multiset<IssueKey> componentIssues = issues.get(issueKey.componentKey);
+    return componentIssues != null && componentIssues.remove(issueKey);
+  }
+
+  @Override
+  public Collection<String> componentKeys() {
+    return issues.keySet();
+  }
+
+  /**
+   * @return live view, which reflects subsequent changes
+   */
+  @Override
+  public Map<String, Multiset<IssueKey>> remaining() {
+    return issues;
+  }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.sonar.api.utils.log.Logger;
+
+/**
+ * Counts of new and missing findings per rule and per component.
+ */
+class Histogram {
+
+  private static final int NEW = 0;
+  private static final int MISSING = 1;
+
+  private static final Comparator<Map.Entry<String, int[]>> BY_TOTAL_DESC = Comparator
+    .<Map.Entry<String, int[]>>comparingInt(entry -> entry.getValue()[NEW] + entry.getValue()[MISSING])
+    .reversed()
+    .thenComparing(Map.Entry::getKey);
+
+  private final Map<String, int[]> rules = new HashMap<>();
+  private final Map<String, int[]> components = new HashMap<>();
+
+  void addNew(IssueKey issueKey) {
+    add(issueKey, NEW);
+  }
+
+  void addMissing(IssueKey issueKey) {
+    add(issueKey, MISSING);
+  }
+
+  private void add(IssueKey issueKey, int kind) {
+    rules.computeIfAbsent(issueKey.ruleKey, k -> new int[2])[kind]++;
+    components.computeIfAbsent(issueKey.componentKey, k -> new int[2])[kind]++;
+  }
+
+  boolean hasDifferences(String componentKey) {
+    return components.containsKey(componentKey);
+  }
+
+  boolean isEmpty() {
+    return rules.isEmpty();
+  }
+
+  void log(Logger log, int limit) {
+    log(log, "rules", rules, limit);
+    log(log, "components", components, limit);
+  }
+
+  private static void log(Logger log, String title, Map<String, int[]> counters, int limit) {
+    List<Map.Entry<String, int[]>> entries = sorted(counters);
+    log.info("Top {} of {} {} with differences:", Math.min(limit, entries.size()), entries.size(), title);
+    for (Map.Entry<String, int[]> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+      log.info("  {}: {} new, {} missing", entry.getKey(), entry.getValue()[NEW], entry.getValue()[MISSING]);
+    }
+  }
+
+  /**
+   * Writes all counters as CSV with columns: kind, key, new, missing.
+   */
+  void write(File file) {
+    StringBuilder sb = new StringBuilder("kind,key,new,missing\n");
+    append(sb, "rule", rules);
+    append(sb, "component", components);
+    AtomicFiles.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  void write(DataOutputStream out) throws IOException {
+    write(out, rules);
+    write(out, components);
+  }
+
+  private static void write(DataOutputStream out, Map<String, int[]> counters) throws IOException {
+    out.writeInt(counters.size());
+    for (Map.Entry<String, int[]> entry : counters.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeInt(entry.getValue()[NEW]);
+      out.writeInt(entry.getValue()[MISSING]);
+    }
+  }
+
+  static Histogram read(DataInputStream in) throws IOException {
+    Histogram histogram = new Histogram();
+    read(in, histogram.rules);
+    read(in, histogram.components);
+    return histogram;
+  }
+
+  private static void read(DataInputStream in, Map<String, int[]> counters) throws IOException {
+    int size = in.readInt();
+    for (int i = 0; i < size; i++) {
+      counters.put(in.readUTF(), new int[] {in.readInt(), in.readInt()});
+    }
+  }
+
+  private static void append(StringBuilder sb, String kind, Map<String, int[]> counters) {
+    for (Map.Entry<String, int[]> entry : sorted(counters)) {
+      sb.append(kind).append(',').append(quote(entry.getKey())).append(',')
+        .append(entry.getValue()[NEW]).append(',')
+        .append(entry.getValue()[MISSING]).append('\n');
+    }
+  }
+
+  private static String quote(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+      return value;
+    }
+    return "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+
+  private static List<Map.Entry<String, int[]>> sorted(Map<String, int[]> counters) {
+    List<Map.Entry<String, int[]>> entries = new ArrayList<>(counters.entrySet());
+    entries.sort(BY_TOTAL_DESC);
+    return entries;
+  }
+
+}
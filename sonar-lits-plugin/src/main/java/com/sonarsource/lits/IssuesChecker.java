@@ -19,17 +19,36 @@ package com.sonarsource.lits;
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileLock;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.batch.fs.FileSystem;
+import org.sonar.api.batch.fs.InputDir;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.rule.ActiveRule;
 import org.sonar.api.batch.rule.ActiveRules;
 import org.sonar.api.config.Configuration;
@@ -47,53 +66,628 @@ public class IssuesChecker implements IssueFilter {
 
   private static final Logger LOG = Loggers.get(IssuesChecker.class);
 
+  /**
+   * Maximal number of new findings kept on heap in degraded mode.
+   */
+  private static final int SPILL_THRESHOLD = 100_000;
+
+  /**
+   * Full table of differences per rule and per component is written next to the file of differences.
+   */
+  static final String HISTOGRAM_SUFFIX = ".histogram.csv";
+  private static final int HISTOGRAM_LOG_LIMIT = 10;
+
   private final File oldDumpFile;
   private final File newDumpFile;
   private final File differencesFile;
+  private final FileSystem fileSystem;
+  private final String projectKey;
+  /**
+   * Limits of memory and time, beyond which differences are only counted.
+   */
+  private final Budget budget;
+  private final ActiveRules activeRules;
+  private final boolean lazyLoading;
+  private final boolean reuseOutput;
+  private final boolean compactOutput;
+
+  /**
+   * Whether {@link #dump} contains only findings, which were not matched, so that new dump is reconstructed from previous one.
+   */
+  private final boolean deltaOnly;
+
+  /**
+   * Where state is saved at phase boundaries, or null.
+   */
+  private final File snapshotFile;
+
+  /**
+   * Maximal distance in lines between new and missing findings to consider them as moved, 0 disables such pairing.
+   */
+  private final int lineWindow;
+
+  /**
+   * Identifies version of analyzers, so that findings of unchanged files can be reused from previous analysis, or null.
+   */
+  private final String analyzerFingerprint;
+
+  /**
+   * Identifies previous dump, so that results of unchanged files are reused only when compared with the same findings, or null.
+   */
+  private final String baselineDigest;
+
+  /**
+   * Components, which are compared. Findings of other components are ignored.
+   */
+  Sample sample;
+
+  /**
+   * Rules, which are compared. Findings of other rules are ignored.
+   */
+  RuleSelection ruleSelection;
+
+  /**
+   * Checkers of other baselines, which compute differences from the same findings, but do not report them as issues.
+   */
+  private final List<IssuesChecker> others = new ArrayList<>();
+
+  /**
+   * Caps number of differences reported as issues.
+   */
+  ReportLimit reportLimit;
+
+  /**
+   * Expected content of {@link #oldDumpFile}, or null if it should not be verified.
+   */
+  private Manifest expectedManifest;
 
   /**
-   * Previous findings indexed by {@link IssueKey#componentKey}.
+   * Loading of {@link #baseline} started in background, or null.
+   */
+  private BaselinePrefetch prefetch;
+
+  private final Supplier<BaselineStore> baselineFactory;
+
+  /**
+   * Previous findings.
+   */
+  private Baseline baseline;
+
+  /**
+   * {@link #baseline} if it is loaded by analysis itself, so that {@link #pendingRules} can be loaded into it, null otherwise.
+   */
+  private BaselineStore store;
+
+  /**
+   * Keys of components with previous findings, which allows to cheaply skip lookups in {@link #baseline} for other components.
+   * Exact for dumps in compact format, which contain dictionary of components.
+   */
+  private Predicate<String> componentFilter;
+
+  /**
+   * Files of active rules, which were not yet loaded into {@link #baseline}, indexed by rule key.
+   */
+  private final Map<String, File> pendingRules = new HashMap<>();
+
+  /**
+   * Files of inactive rules, which are checked for findings of analyzed components only once matching is done.
+   */
+  private final Map<String, File> inactiveRuleFiles = new HashMap<>();
+
+  /**
+   * Selects components of {@link #pendingRules} to load, and adds them to {@link #componentFilter}.
+   */
+  private Predicate<String> pendingComponentFilter;
+
+  /**
+   * Used to load pending rules.
+   */
+  private Set<String> analyzedComponentKeys;
+
+  /**
+   * Previous findings, which were not matched, indexed by {@link IssueKey#componentKey}.
    */
   private Map<String, Multiset<IssueKey>> previous;
 
+  /**
+   * In delta mode, previous findings, which are not part of new dump, indexed by {@link IssueKey#componentKey}.
+   * Unlike {@link #previous}, also contains findings paired with moved ones.
+   */
+  private Map<String, Multiset<IssueKey>> unmatched;
+
   /**
    * New findings.
    */
   private final List<IssueKey> dump = new ArrayList<>();
 
+  /**
+   * New findings moved out of heap in degraded mode.
+   */
+  private DumpSpill spill;
+
+  /**
+   * New findings, which might be paired with missing ones, indexed by {@link IssueKey#componentKey}.
+   */
+  private final Map<String, List<DeferredIssue>> deferred = new HashMap<>();
+
+  /**
+   * Rule keys as strings, so that they are neither built for each finding, nor duplicated in {@link #dump}.
+   */
+  private final Map<RuleKey, String> ruleKeys = new HashMap<>();
+
+  /**
+   * Components, for which analyzers reported findings, so that results of unchanged files are reused only when none were reported.
+   */
+  private final Set<String> reportedComponents = new HashSet<>();
+
   private final Set<String> inactiveRules = new HashSet<>();
   private final Set<String> missingResources = new HashSet<>();
 
   boolean different = false;
   boolean disabled = false;
   int differences = 0;
+  final Histogram histogram;
+  int moved = 0;
+
+  /**
+   * In degraded mode differences are only counted - they are not reported as issues.
+   */
+  boolean degraded = false;
+  private String degradationReason;
 
   // must be public for SQ picocontainer
-  public IssuesChecker(Configuration settings, ActiveRules activerules) {
-    oldDumpFile = getFile(settings, LITSPlugin.OLD_DUMP_PROPERTY);
-    newDumpFile = getFile(settings, LITSPlugin.NEW_DUMP_PROPERTY);
-    differencesFile = getFile(settings, LITSPlugin.DIFFERENCES_PROPERTY);
+  public IssuesChecker(Configuration settings, ActiveRules activerules, FileSystem fileSystem) {
+    this(settings, activerules, fileSystem, Budget.of(settings));
+  }
+
+  IssuesChecker(Configuration settings, ActiveRules activerules, FileSystem fileSystem, Budget budget) {
+    this(settings, activerules, fileSystem, budget, 0, new ConcurrentHashMap<>());
+  }
+
+  /**
+   * @param index of baseline, 0 for {@link LITSPlugin#OLD_DUMP_PROPERTY}, which is the only one reporting issues,
+   * otherwise position + 1 in values of {@link LITSPlugin#OTHER_OLD_DUMPS_PROPERTY}
+   * @param keys shared by baselines
+   */
+  private IssuesChecker(Configuration settings, ActiveRules activerules, FileSystem fileSystem, Budget budget, int index, ConcurrentMap<String, String> keys) {
+    oldDumpFile = getFile(settings, LITSPlugin.OLD_DUMP_PROPERTY, LITSPlugin.OTHER_OLD_DUMPS_PROPERTY, index);
+    newDumpFile = getFile(settings, LITSPlugin.NEW_DUMP_PROPERTY, LITSPlugin.OTHER_NEW_DUMPS_PROPERTY, index);
+    differencesFile = getFile(settings, LITSPlugin.DIFFERENCES_PROPERTY, LITSPlugin.OTHER_DIFFERENCES_PROPERTY, index);
+    this.fileSystem = fileSystem;
+    this.projectKey = settings.get(CoreProperties.PROJECT_KEY_PROPERTY).orElse(null);
+    this.budget = budget;
+    int baselines = 1 + settings.getStringArray(LITSPlugin.OTHER_OLD_DUMPS_PROPERTY).length;
+    Supplier<BaselineStore> storeFactory = baselineFactory(settings);
+    this.baselineFactory = baselines > 1 ? () -> new SharedKeysBaseline(storeFactory.get(), keys) : storeFactory;
+    this.reuseOutput = reuseOutput(settings);
+    this.compactOutput = compactOutput(settings);
+    this.activeRules = activerules;
+    this.lazyLoading = settings.getBoolean(LITSPlugin.LAZY_LOADING_PROPERTY).orElse(false);
+    this.lineWindow = settings.getInt(LITSPlugin.LINE_WINDOW_PROPERTY).orElse(0);
+    // other baselines don't report issues, so they must not collect differences for summaries
+    this.reportLimit = new ReportLimit(index == 0 ? settings.getInt(LITSPlugin.REPORT_LIMIT_PROPERTY).orElse(0) : 0);
+    this.sample = sample(settings);
+    this.ruleSelection = RuleSelection.of(settings.getStringArray(LITSPlugin.RULES_PROPERTY));
+    // results of files are cached only for the first baseline
+    this.analyzerFingerprint = index == 0 ? settings.get(LITSPlugin.ANALYZER_FINGERPRINT_PROPERTY).orElse(null) : null;
+    this.baselineDigest = analyzerFingerprint != null ? baselineDigest(oldDumpFile) : null;
+    // analysis can be finished only for the first baseline
+    this.snapshotFile = index == 0 && settings.get(LITSPlugin.SNAPSHOT_PROPERTY).isPresent() ? getFile(settings, LITSPlugin.SNAPSHOT_PROPERTY) : null;
+    boolean delta = settings.getBoolean(LITSPlugin.DELTA_PROPERTY).orElse(false);
+    if (delta && snapshotFile != null) {
+      LOG.warn("Property '{}' is ignored, since snapshot requires all findings", LITSPlugin.DELTA_PROPERTY);
+    }
+    this.deltaOnly = delta && snapshotFile == null;
+    this.histogram = new Histogram();
     for (ActiveRule activeRule : activerules.findAll()) {
       if (!activeRule.severity().equals(Severity.INFO)) {
         RuleKey ruleKey = activeRule.ruleKey();
         throw MessageException.of("Rule '" + ruleKey.repository() + ":" + ruleKey.rule() + "' must be declared with severity INFO");
       }
     }
+    if (settings.getBoolean(LITSPlugin.VERIFY_PROPERTY).orElse(false) && oldDumpFile.isDirectory()) {
+      expectedManifest = Manifest.read(oldDumpFile);
+      if (expectedManifest == null) {
+        LOG.warn("No manifest in {}, checksums will not be verified", oldDumpFile);
+      }
+    }
+    Integer serverPort = settings.getInt(LITSPlugin.BASELINE_SERVER_PROPERTY).orElse(null);
+    if (serverPort != null && oldDumpFile.isDirectory()) {
+      baseline = RemoteBaseline.connect(serverPort, oldDumpFile);
+      if (baseline != null) {
+        LOG.info("Using baseline server on port {}", serverPort);
+      }
+    }
+    if (baseline == null && settings.getBoolean(LITSPlugin.PREFETCH_PROPERTY).orElse(false) && oldDumpFile.isDirectory()) {
+      LOG.info("Loading {} in background", oldDumpFile);
+      prefetch = new BaselinePrefetch(oldDumpFile, baselineFactory, ruleSelection::contains, lazyLoading ? this::isActive : null, expectedManifest);
+    }
+    if (index == 0) {
+      for (String property : Arrays.asList(LITSPlugin.OTHER_NEW_DUMPS_PROPERTY, LITSPlugin.OTHER_DIFFERENCES_PROPERTY)) {
+        if (settings.getStringArray(property).length != baselines - 1) {
+          throw MessageException.of("Property '" + property + "' must have as many values as property '" + LITSPlugin.OTHER_OLD_DUMPS_PROPERTY + "'");
+        }
+      }
+      for (int i = 1; i < baselines; i++) {
+        others.add(new IssuesChecker(settings, activerules, fileSystem, Budget.of(settings), i, keys));
+      }
+    }
   }
 
-  Map<String, Multiset<IssueKey>> getPrevious() {
-    if (previous == null) {
+  /**
+   * Restores state saved at phase boundary, to finish analysis without analyzers.
+   */
+  IssuesChecker(Snapshot snapshot, File snapshotFile) {
+    oldDumpFile = null;
+    newDumpFile = snapshot.newDumpFile;
+    differencesFile = snapshot.differencesFile;
+    fileSystem = null;
+    projectKey = null;
+    budget = new Budget(0, 0);
+    baselineFactory = HeapBaseline::new;
+    reuseOutput = snapshot.reuseOutput;
+    compactOutput = snapshot.compactOutput;
+    deltaOnly = false;
+    activeRules = null;
+    lazyLoading = false;
+    lineWindow = snapshot.lineWindow;
+    // nothing is reported when finishing analysis
+    reportLimit = new ReportLimit(0);
+    sample = new Sample(snapshot.sampleRate);
+    ruleSelection = RuleSelection.of(snapshot.selectedRules.split(","));
+    analyzerFingerprint = null;
+    baselineDigest = null;
+    this.snapshotFile = snapshotFile;
+    histogram = snapshot.histogram;
+    previous = new HashMap<>(snapshot.previous);
+    deferred.putAll(snapshot.deferred);
+    snapshot.issues.forEach(dump::add);
+    inactiveRules.addAll(snapshot.inactiveRules);
+    missingResources.addAll(snapshot.missingResources);
+    different = snapshot.different;
+    differences = snapshot.differences;
+    moved = snapshot.moved;
+    degraded = snapshot.degradationReason != null;
+    degradationReason = snapshot.degradationReason;
+    disabled = true;
+  }
+
+  /**
+   * Saves state, if {@link LITSPlugin#SNAPSHOT_PROPERTY} is set.
+   *
+   * @param analyzedComponentKeys components, for which missing findings are not yet computed
+   */
+  void checkpoint(byte phase, Collection<String> analyzedComponentKeys) {
+    if (snapshotFile == null) {
+      return;
+    }
+    LOG.info("Saving snapshot {}", snapshotFile);
+    Snapshot snapshot = new Snapshot();
+    snapshot.phase = phase;
+    snapshot.newDumpFile = newDumpFile;
+    snapshot.differencesFile = differencesFile;
+    snapshot.reuseOutput = reuseOutput;
+    snapshot.compactOutput = compactOutput;
+    snapshot.lineWindow = lineWindow;
+    snapshot.sampleRate = sample.rate();
+    snapshot.selectedRules = ruleSelection.toString();
+    snapshot.different = different;
+    snapshot.differences = differences;
+    snapshot.moved = moved;
+    snapshot.degradationReason = degradationReason;
+    snapshot.inactiveRules = inactiveRules;
+    snapshot.missingResources = missingResources;
+    snapshot.histogram = histogram;
+    if (phase == Snapshot.FILTERED) {
+      snapshot.activeRuleKeys = activeRules.findAll().stream().map(activeRule -> activeRule.ruleKey().toString()).collect(Collectors.toList());
+      snapshot.analyzedComponentKeys = analyzedComponentKeys;
+      snapshot.previous = getPrevious();
+      snapshot.deferred = deferred;
+    }
+    snapshot.issues = spill != null ? () -> spill.merge(dump) : dump;
+    snapshot.write(snapshotFile);
+  }
+
+  private boolean isActive(String ruleKey) {
+    return activeRules.find(RuleKey.parse(ruleKey)) != null;
+  }
+
+  private static boolean reuseOutput(Configuration settings) {
+    String output = settings.get(LITSPlugin.OUTPUT_PROPERTY).orElse("replace");
+    switch (output) {
+      case "replace":
+        return false;
+      case "reuse":
+        return true;
+      default:
+        throw MessageException.of("Unsupported value '" + output + "' of property '" + LITSPlugin.OUTPUT_PROPERTY + "'");
+    }
+  }
+
+  private static Sample sample(Configuration settings) {
+    double rate = settings.getDouble(LITSPlugin.SAMPLE_PROPERTY).orElse(1.0);
+    if (!(rate > 0 && rate <= 1)) {
+      throw MessageException.of("Unsupported value '" + rate + "' of property '" + LITSPlugin.SAMPLE_PROPERTY + "'");
+    }
+    return rate == 1 ? Sample.ALL : new Sample(rate);
+  }
+
+  private static boolean compactOutput(Configuration settings) {
+    String format = settings.get(LITSPlugin.FORMAT_PROPERTY).orElse("json");
+    switch (format) {
+      case "json":
+        return false;
+      case "compact":
+        return true;
+      default:
+        throw MessageException.of("Unsupported value '" + format + "' of property '" + LITSPlugin.FORMAT_PROPERTY + "'");
+    }
+  }
+
+  private static Supplier<BaselineStore> baselineFactory(Configuration settings) {
+    String store = settings.get(LITSPlugin.BASELINE_STORE_PROPERTY).orElse("heap");
+    switch (store) {
+      case "heap":
+        return HeapBaseline::new;
+      case "offheap":
+        return OffHeapBaseline::new;
+      case "sorted":
+        return SortedBaseline::new;
+      case "bitmap":
+        return BitmapBaseline::new;
+      default:
+        throw MessageException.of("Unsupported value '" + store + "' of property '" + LITSPlugin.BASELINE_STORE_PROPERTY + "'");
+    }
+  }
+
+  Baseline getBaseline() {
+    if (baseline == null && prefetch != null) {
+      baseline = prefetch.await();
+      prefetch.inactiveRules().forEach(this::checkInactiveRule);
+      prefetch = null;
+      analyzedComponentKeys = null;
+    } else if (baseline == null) {
+      store = baselineFactory.get();
+      baseline = store;
       if (!oldDumpFile.isDirectory()) {
         LOG.warn("Directory not found: {}", oldDumpFile);
-        previous = Collections.emptyMap();
+      } else if (lazyLoading && !CompactDump.exists(oldDumpFile)) {
+        LOG.info("Indexing {}", oldDumpFile);
+        if (expectedManifest != null) {
+          expectedManifest.verifyListedFilesExist(oldDumpFile);
+        }
+        indexRules();
       } else {
         LOG.info("Loading {}", oldDumpFile);
-        previous = Dump.load(oldDumpFile);
+        // components which are not part of this analysis can't be matched, so there is no need to keep their issues
+        ComponentDictionary dictionary = Dump.load(oldDumpFile, store, ruleSelection::contains, this::shouldLoad, this::skippedComponent, expectedManifest);
+        if (dictionary != null) {
+          componentFilter = dictionary::contains;
+        }
+        analyzedComponentKeys = null;
+      }
+    }
+    return baseline;
+  }
+
+  private void indexRules() {
+    // only analyzed components are loaded, so that their number bounds size of the filter, which is filled as rules are loaded
+    BloomFilter loadedComponents = BloomFilter.create(analyzedComponentKeys().size());
+    componentFilter = loadedComponents::mightContain;
+    pendingComponentFilter = componentKey -> {
+      if (shouldLoad(componentKey)) {
+        loadedComponents.put(componentKey);
+        return true;
+      }
+      return false;
+    };
+    for (Map.Entry<String, File> entry : Dump.index(oldDumpFile).entrySet()) {
+      String ruleKey = entry.getKey();
+      if (!ruleSelection.contains(ruleKey)) {
+        // neither loaded, nor reported as inactive
+        continue;
+      }
+      if (isActive(ruleKey)) {
+        pendingRules.put(ruleKey, entry.getValue());
+      } else if (entry.getValue().length() > 0) {
+        inactiveRuleFiles.put(ruleKey, entry.getValue());
+      }
+    }
+  }
+
+  private void loadRule(String ruleKey) {
+    File file = pendingRules.remove(ruleKey);
+    if (file != null) {
+      LOG.debug("Loading {}", file);
+      Dump.loadRule(file, store, pendingComponentFilter, this::skippedComponent, expectedManifest);
+      if (pendingRules.isEmpty() && inactiveRuleFiles.isEmpty()) {
+        analyzedComponentKeys = null;
+        pendingComponentFilter = null;
+      }
+    }
+  }
+
+  private void loadPendingRules() {
+    inactiveRuleFiles.forEach(this::checkInactiveRule);
+    inactiveRuleFiles.clear();
+    for (String ruleKey : new ArrayList<>(pendingRules.keySet())) {
+      loadRule(ruleKey);
+    }
+    analyzedComponentKeys = null;
+    pendingComponentFilter = null;
+  }
+
+  /**
+   * Reports rule as inactive only if it has findings of analyzed components, as when findings of all rules are loaded.
+   * Its findings are not kept.
+   */
+  private void checkInactiveRule(String ruleKey, File file) {
+    Set<String> componentKeys = new HashSet<>();
+    Dump.loadRule(file, new HeapBaseline(), componentKey -> {
+      componentKeys.add(componentKey);
+      return false;
+    }, componentKey -> {
+    }, expectedManifest);
+    checkInactiveRule(ruleKey, componentKeys);
+  }
+
+  /**
+   * @param componentKeys of components with findings of given rule, which are reported as not analyzed unless they were
+   */
+  private void checkInactiveRule(String ruleKey, Collection<String> componentKeys) {
+    boolean analyzed = false;
+    for (String componentKey : componentKeys) {
+      if (shouldLoad(componentKey)) {
+        analyzed = true;
+      } else {
+        skippedComponent(componentKey);
+      }
+    }
+    if (analyzed) {
+      inactiveRule(ruleKey);
+    }
+  }
+
+  private Predicate<String> getComponentFilter() {
+    if (componentFilter == null) {
+      componentFilter = BloomFilter.of(getBaseline().componentKeys())::mightContain;
+    }
+    return componentFilter;
+  }
+
+  /**
+   * Depending on the store, result might be a snapshot, so this method should not be used before the end of matching.
+   */
+  Map<String, Multiset<IssueKey>> getPrevious() {
+    if (previous == null) {
+      getBaseline();
+      loadPendingRules();
+      if (baseline instanceof RemoteBaseline) {
+        // only keys of components, which were not analyzed, are needed to report them
+        baseline.componentKeys().stream().filter(componentKey -> !shouldLoad(componentKey)).forEach(this::skippedComponent);
+        previous = ((RemoteBaseline) baseline).remaining(this::shouldLoad);
+      } else {
+        previous = baseline.remaining();
+      }
+      if (!ruleSelection.isAll()) {
+        // baseline server keeps findings of all rules
+        previous = selectedRules(previous);
+      }
+      if (deltaOnly) {
+        unmatched = new HashMap<>();
+        previous.forEach((componentKey, issueKeys) -> unmatched.put(componentKey, Multiset.copyOf(issueKeys)));
       }
     }
     return previous;
   }
 
+  private Map<String, Multiset<IssueKey>> selectedRules(Map<String, Multiset<IssueKey>> issuesByComponent) {
+    Map<String, Multiset<IssueKey>> result = new HashMap<>();
+    issuesByComponent.forEach((componentKey, issueKeys) -> {
+      Multiset<IssueKey> selected = Multiset.create();
+      for (IssueKey issueKey : issueKeys) {
+        if (ruleSelection.contains(issueKey.ruleKey)) {
+          selected.add(issueKey);
+        }
+      }
+      result.put(componentKey, selected);
+    });
+    return result;
+  }
+
+  private boolean shouldLoad(String componentKey) {
+    return sample.contains(componentKey) && analyzedComponentKeys().contains(componentKey);
+  }
+
+  private void skippedComponent(String componentKey) {
+    if (sample.contains(componentKey)) {
+      missingResource(componentKey);
+    }
+  }
+
+  private Set<String> analyzedComponentKeys() {
+    if (analyzedComponentKeys == null) {
+      analyzedComponentKeys = collectAnalyzedComponentKeys();
+    }
+    return analyzedComponentKeys;
+  }
+
+  private Set<String> collectAnalyzedComponentKeys() {
+    Set<String> result = new HashSet<>();
+    if (projectKey != null) {
+      result.add(projectKey);
+    }
+    for (InputFile inputFile : fileSystem.inputFiles(fileSystem.predicates().all())) {
+      result.add(inputFile.key());
+      InputDir inputDir = fileSystem.inputDir(inputFile.file());
+      if (inputDir != null) {
+        result.add(inputDir.key());
+      }
+    }
+    return result;
+  }
+
+  private void addToDump(IssueKey issueKey) {
+    dump.add(issueKey);
+    if (degraded && dump.size() >= SPILL_THRESHOLD) {
+      spill.write(dump);
+    }
+  }
+
+  /**
+   * @return true if analyzers reported findings for given component
+   */
+  boolean hasFindings(String componentKey) {
+    return reportedComponents.contains(componentKey);
+  }
+
+  /**
+   * Keeps remaining previous findings of component in new dump without comparing them, since they are known to be unchanged.
+   * Must not be used for components with {@link #hasFindings(String) findings}, since they were analyzed, so remaining findings are missing.
+   */
+  void carryOver(String componentKey) {
+    Multiset<IssueKey> issueKeys = getByComponentKey(componentKey);
+    if (deltaOnly) {
+      // already part of reconstructed dump
+      unmatched.remove(componentKey);
+    } else {
+      for (IssueKey issueKey : issueKeys) {
+        addToDump(issueKey);
+      }
+    }
+    issueKeys.clear();
+  }
+
+  @CheckForNull
+  String analyzerFingerprint() {
+    return analyzerFingerprint;
+  }
+
+  @CheckForNull
+  String baselineDigest() {
+    return baselineDigest;
+  }
+
+  @CheckForNull
+  private static String baselineDigest(File oldDumpFile) {
+    if (!oldDumpFile.isDirectory()) {
+      return "none";
+    }
+    Manifest manifest = Manifest.read(oldDumpFile);
+    if (manifest == null) {
+      LOG.warn("No manifest in {}, results of unchanged files will not be reused", oldDumpFile);
+      return null;
+    }
+    return manifest.digest();
+  }
+
+  /**
+   * @return true if differences were found in given component, including new findings not yet known to be moved
+   */
+  boolean hasDifferences(String componentKey) {
+    return histogram.hasDifferences(componentKey) || deferred.containsKey(componentKey);
+  }
+
   Multiset<IssueKey> getByComponentKey(String componentKey) {
     Multiset<IssueKey> issueKeys = getPrevious().get(componentKey);
     if (issueKeys == null) {
@@ -110,25 +704,100 @@ public class IssuesChecker implements IssueFilter {
     if (disabled) {
       return true;
     }
+    if (!sample.contains(issue.componentKey()) || !ruleSelection.contains(issue.ruleKey())) {
+      // neither compared, nor persisted
+      return false;
+    }
 
-    IssueKey issueKey = new IssueKey(issue.componentKey(), issue.ruleKey().toString(), issue.line());
-    dump.add(issueKey);
-    Multiset<IssueKey> componentIssues = getByComponentKey(issueKey.componentKey);
-    if (componentIssues.contains(issueKey)) {
+    // key is also the entry of new dump, whereas lookup of components without previous findings does not allocate
+    IssueKey issueKey = new IssueKey(issue.componentKey(), ruleKeys.computeIfAbsent(issue.ruleKey(), RuleKey::toString), issue.line());
+    for (IssuesChecker other : others) {
+      other.check(issueKey, issue);
+    }
+    return check(issueKey, issue);
+  }
+
+  /**
+   * @return whether finding should be reported as issue
+   */
+  private boolean check(IssueKey issueKey, FilterableIssue issue) {
+    reportedComponents.add(issueKey.componentKey);
+    if (!deltaOnly) {
+      addToDump(issueKey);
+    }
+    if (!degraded) {
+      checkBudget();
+    }
+    boolean matched = consume(issueKey);
+    if (deltaOnly && !matched) {
+      addToDump(issueKey);
+    }
+    if (matched) {
       // old issue => no need to persist
-      componentIssues.remove(issueKey);
       if (!Severity.INFO.equals(issue.severity())) {
         throw new IllegalStateException();
       }
       return false;
+    } else if (lineWindow > 0 && !degraded && issueKey.line != 0 && getComponentFilter().test(issueKey.componentKey)) {
+      // might be a moved issue => decide once all issues of component are known
+      different = true;
+      deferred.computeIfAbsent(issueKey.componentKey, k -> new ArrayList<>()).add(new DeferredIssue(issueKey, issue.message()));
+      return false;
     } else {
-      // new issue => persist
+      // new issue => persist, unless only counts are reported or it is beyond the limit
       different = true;
-      differences++;
-      return true;
+      newIssue(issueKey);
+      return !degraded && reportLimit.report(issueKey, false);
     }
   }
 
+  private boolean consume(IssueKey issueKey) {
+    if (previous != null) {
+      // remaining findings were already requested, so they should stay consistent
+      boolean removed = getByComponentKey(issueKey.componentKey).remove(issueKey);
+      if (removed && unmatched != null) {
+        unmatched.get(issueKey.componentKey).remove(issueKey);
+      }
+      return removed;
+    }
+    getBaseline();
+    if (!pendingRules.isEmpty()) {
+      loadRule(issueKey.ruleKey);
+    }
+    return getComponentFilter().test(issueKey.componentKey) && baseline.remove(issueKey);
+  }
+
+  void checkBudget() {
+    if (degraded) {
+      return;
+    }
+    String reason = budget.check();
+    if (reason != null) {
+      LOG.warn("LITS {}, switching to degraded mode: differences will be only counted", reason);
+      degraded = true;
+      degradationReason = reason;
+      spill = DumpSpill.create();
+      spill.write(dump);
+    }
+  }
+
+  /**
+   * Pairs deferred new findings of given component with its missing findings, paired findings are considered as moved.
+   *
+   * @return deferred new findings, which were not paired
+   */
+  List<DeferredIssue> matchMoved(String componentKey) {
+    List<DeferredIssue> result = deferred.remove(componentKey);
+    if (result == null) {
+      return Collections.emptyList();
+    }
+    Multiset<IssueKey> componentIssues = getByComponentKey(componentKey);
+    if (!componentIssues.isEmpty()) {
+      moved += MovedIssues.match(result, deferredIssue -> deferredIssue.issueKey, componentIssues, lineWindow);
+    }
+    return result;
+  }
+
   void inactiveRule(String ruleKey) {
     different = true;
     inactiveRules.add(ruleKey);
@@ -139,7 +808,7 @@ public class IssuesChecker implements IssueFilter {
     missingResources.add(componentKey);
   }
 
-  private static void forceDelete(File file) {
+  static void forceDelete(File file) {
     if (file.exists()) {
       try {
         deleteRecursively(file.toPath());
@@ -149,26 +818,148 @@ public class IssuesChecker implements IssueFilter {
     }
   }
 
+  /**
+   * Tolerates files, which are deleted concurrently, e.g. by another scan sharing the same output.
+   */
   private static void deleteRecursively(Path path) throws IOException {
-    List<Path> paths;
-    try (java.util.stream.Stream<Path> stream = Files.walk(path)) {
-      paths = stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
-    }
-    for (Path current : paths) {
-      Files.deleteIfExists(current);
+    Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        Files.deleteIfExists(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+        if (e instanceof NoSuchFileException) {
+          return FileVisitResult.CONTINUE;
+        }
+        throw e;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, @Nullable IOException e) throws IOException {
+        if (e != null && !(e instanceof NoSuchFileException)) {
+          throw e;
+        }
+        Files.deleteIfExists(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  void newIssue(IssueKey issueKey) {
+    differences++;
+    histogram.addNew(issueKey);
+  }
+
+  void missingIssue(IssueKey issueKey) {
+    differences++;
+    histogram.addMissing(issueKey);
+  }
+
+  /**
+   * Reports components with previous findings, which were not analyzed.
+   */
+  void reportNotAnalyzedComponents() {
+    for (Map.Entry<String, Multiset<IssueKey>> entry : getPrevious().entrySet()) {
+      if (!entry.getValue().isEmpty() && sample.contains(entry.getKey())) {
+        missingResource(entry.getKey());
+      }
     }
   }
 
   void save() {
-    forceDelete(newDumpFile);
+    // should not happen, since deferred findings are on analyzed files
+    deferred.values().forEach(deferredIssues -> deferredIssues.forEach(deferredIssue -> newIssue(deferredIssue.issueKey)));
+    deferred.clear();
+    // concurrent scans might share the same dump
+    FileLock lock = AtomicFiles.lock(newDumpFile);
+    try {
+      saveLocked();
+    } finally {
+      AtomicFiles.release(newDumpFile, lock);
+      if (spill != null) {
+        // also closes runs of merges abandoned by a failure
+        spill.close();
+      }
+      if (baseline != null) {
+        baseline.close();
+      }
+    }
+  }
+
+  private Manifest saveDump(File dir) {
+    if (deltaOnly) {
+      try (DeltaDump issues = newDeltaDump()) {
+        return compactOutput ? CompactDump.save(issues, dir) : Dump.save(issues, dir);
+      }
+    }
+    if (compactOutput) {
+      return CompactDump.save(newDumpIssues(), dir);
+    }
+    if (spill == null) {
+      return Dump.save(dump, dir);
+    }
+    try (DumpSpill.Merge issues = spill.merge(dump)) {
+      return Dump.save(issues, dir);
+    }
+  }
+
+  /**
+   * @return findings of this analysis in {@link Dump#ORDER}, which are all findings of new dump unless only differences are kept
+   */
+  private Iterator<IssueKey> newDumpIssues() {
+    Iterator<IssueKey> issues;
+    if (spill != null) {
+      issues = spill.merge(dump);
+    } else {
+      dump.sort(Dump.ORDER);
+      issues = dump.iterator();
+    }
+    return issues;
+  }
+
+  /**
+   * @return findings of new dump in {@link Dump#ORDER}, reconstructed from previous dump
+   */
+  private DeltaDump newDeltaDump() {
+    getPrevious();
+    Set<String> componentKeys = collectAnalyzedComponentKeys();
+    // findings of inactive rules are not loaded in lazy mode, so they can't be part of unmatched ones
+    Predicate<String> ruleFilter = ruleKey -> ruleSelection.contains(ruleKey) && isActive(ruleKey);
+    return DeltaDump.merge(oldDumpFile, ruleFilter, componentKey -> sample.contains(componentKey) && componentKeys.contains(componentKey), unmatched, newDumpIssues());
+  }
+
+  private void saveLocked() {
     List<String> messages = new ArrayList<>();
     MessageException exception = null;
     if (different) {
       LOG.info("Saving {}", newDumpFile);
-      Dump.save(dump, newDumpFile);
+      if (reuseOutput) {
+        if (newDumpFile.isFile()) {
+          forceDelete(newDumpFile);
+        }
+        Dump.deleteStale(newDumpFile, saveDump(newDumpFile));
+      } else {
+        AtomicFiles.publishDirectory(newDumpFile, this::saveDump);
+      }
       messages.add("Issues differences: " + differences);
+      if (moved > 0) {
+        messages.add("Moved issues: " + moved);
+      }
     } else {
       LOG.info("No differences in issues");
+      forceDelete(newDumpFile);
+    }
+    if (degraded) {
+      messages.add("Degraded mode: " + degradationReason);
+    }
+    if (!sample.isFull()) {
+      messages.add("Sample rate: " + BigDecimal.valueOf(sample.rate()).stripTrailingZeros().toPlainString());
+    }
+    if (!ruleSelection.isAll()) {
+      messages.add("Selected rules: " + ruleSelection);
     }
     if (!inactiveRules.isEmpty()) {
       String message = "Inactive rules: " + String.join(", ", inactiveRules);
@@ -180,20 +971,45 @@ public class IssuesChecker implements IssueFilter {
       messages.add(message);
       exception = MessageException.of(message);
     }
-    forceDelete(differencesFile);
-    try {
-      differencesFile.createNewFile();
-      Files.write(differencesFile.toPath(), String.join("\n", messages).getBytes(StandardCharsets.UTF_8));
-    } catch (IOException e) {
-      throw new UncheckedIOException(e);
+    File histogramFile = new File(differencesFile.getPath() + HISTOGRAM_SUFFIX);
+    forceDelete(histogramFile);
+    if (!histogram.isEmpty()) {
+      histogram.log(LOG, HISTOGRAM_LOG_LIMIT);
+      histogram.write(histogramFile);
+    }
+    AtomicFiles.write(differencesFile, String.join("\n", messages).getBytes(StandardCharsets.UTF_8));
+    if (snapshotFile != null) {
+      // analysis is finished
+      forceDelete(snapshotFile);
     }
     if (exception != null) {
       throw exception;
     }
   }
 
+  /**
+   * @return checkers of other baselines
+   */
+  List<IssuesChecker> others() {
+    return others;
+  }
+
+  /**
+   * @param index of baseline, 0 for value of {@code property}, otherwise position + 1 in values of {@code othersProperty}
+   */
+  private static File getFile(Configuration settings, String property, String othersProperty, int index) {
+    if (index == 0) {
+      return getFile(settings, property);
+    }
+    return toFile(settings.getStringArray(othersProperty)[index - 1].trim(), othersProperty);
+  }
+
   private static File getFile(Configuration settings, String property) {
     String path = settings.get(property).orElseThrow(() -> MessageException.of("Missing property '" + property + "'"));
+    return toFile(path, property);
+  }
+
+  private static File toFile(String path, String property) {
     File file = new File(path);
     if (!file.isAbsolute()) {
       throw MessageException.of("Path must be absolute - check property '" + property + "'");
@@ -201,4 +1017,14 @@ public class IssuesChecker implements IssueFilter {
     return file;
   }
 
+  static final class DeferredIssue {
+    final IssueKey issueKey;
+    final String message;
+
+    DeferredIssue(IssueKey issueKey, @Nullable String message) {
+      this.issueKey = issueKey;
+      this.message = message;
+    }
+  }
+
 }
@@ -24,6 +24,109 @@ public class LITSPlugin implements Plugin {
   static final String NEW_DUMP_PROPERTY = "sonar.lits.dump.new";
   static final String DIFFERENCES_PROPERTY = "sonar.lits.differences";
 
+  /**
+   * Comma-separated absolute paths of previous dumps of other baselines. Each of them is compared with the same findings as
+   * {@link #OLD_DUMP_PROPERTY}, and has its own value of {@link #OTHER_NEW_DUMPS_PROPERTY} and {@link #OTHER_DIFFERENCES_PROPERTY}
+   * at the same position. Differences with other baselines are not reported as issues.
+   */
+  static final String OTHER_OLD_DUMPS_PROPERTY = "sonar.lits.others.dump.old";
+  static final String OTHER_NEW_DUMPS_PROPERTY = "sonar.lits.others.dump.new";
+  static final String OTHER_DIFFERENCES_PROPERTY = "sonar.lits.others.differences";
+
+  /**
+   * Absolute path of file, where state of analysis is saved at phase boundaries, so that it can be finished by {@link FinishAnalysis}
+   * if interrupted. File is deleted once analysis is finished.
+   */
+  static final String SNAPSHOT_PROPERTY = "sonar.lits.snapshot";
+
+  /**
+   * How new dump is written: {@code replace} (default) writes it aside and atomically replaces previous one,
+   * {@code reuse} overwrites files of previous one in place and deletes only stale files.
+   */
+  static final String OUTPUT_PROPERTY = "sonar.lits.dump.output";
+
+  /**
+   * Format in which new dump is written: {@code json} (default) with one file per rule, or {@code compact} with a single
+   * binary file, where keys of components are front-coded. Previous dump is read in whichever format it was written.
+   */
+  static final String FORMAT_PROPERTY = "sonar.lits.dump.format";
+
+  /**
+   * Whether only differences should be kept in memory during analysis, new dump being reconstructed from the previous one when saved.
+   * Ignored when {@link #SNAPSHOT_PROPERTY} is set.
+   */
+  static final String DELTA_PROPERTY = "sonar.lits.dump.delta";
+
+  /**
+   * Storage of previous findings: {@code heap} (default), {@code offheap}, {@code sorted} or {@code bitmap}.
+   */
+  static final String BASELINE_STORE_PROPERTY = "sonar.lits.baseline.store";
+
+  /**
+   * Whether files of previous findings should be parsed only when findings of corresponding rule are needed.
+   */
+  static final String LAZY_LOADING_PROPERTY = "sonar.lits.baseline.lazy";
+
+  /**
+   * Whether previous findings should be loaded in background as soon as analysis starts.
+   * In this case components which are not analyzed are loaded too, and reported as missing only at the end of analysis.
+   */
+  static final String PREFETCH_PROPERTY = "sonar.lits.baseline.prefetch";
+
+  /**
+   * Port on loopback interface of {@link BaselineServer}, which keeps previous findings in memory across analyses.
+   * Previous findings are loaded by analysis itself when server is not available.
+   */
+  static final String BASELINE_SERVER_PROPERTY = "sonar.lits.baseline.server";
+
+  /**
+   * Whether content of files of previous findings should be verified against their manifest.
+   */
+  static final String VERIFY_PROPERTY = "sonar.lits.dump.verify";
+
+  /**
+   * Maximal distance in lines between new and missing issues of the same rule and file, to report them as moved rather than as differences.
+   * Disabled by default. When enabled, new issues of files with previous issues are reported only at the end of analysis, and are
+   * raised again with their rule, line and message only: their secondary locations, flows, gap and effort are lost.
+   */
+  static final String LINE_WINDOW_PROPERTY = "sonar.lits.lineWindow";
+
+  /**
+   * Version of analyzers, for example checksum of their jars. When set and analysis cache is enabled, previous findings of files,
+   * which had no differences and did not change since analysis with the same version and the same previous dump, are kept in new dump
+   * without comparing them. Requires manifest of previous dump.
+   */
+  static final String ANALYZER_FINGERPRINT_PROPERTY = "sonar.lits.analyzer.fingerprint";
+
+  /**
+   * Fraction of components, which are compared, for example {@code 0.1}. Components are selected by hash of their keys,
+   * so that the same ones are selected by every analysis. Findings of other components are ignored and are not part of new dump.
+   * All components are compared by default.
+   */
+  static final String SAMPLE_PROPERTY = "sonar.lits.sample";
+
+  /**
+   * Comma-separated keys of rules, which are compared, or patterns of such keys, where {@code *} matches any sequence of characters,
+   * for example {@code java:S1*}. Previous findings of other rules are not loaded, and their new findings are ignored and are not part
+   * of new dump. All rules are compared by default.
+   */
+  static final String RULES_PROPERTY = "sonar.lits.rules";
+
+  /**
+   * Maximal number of differences reported as issues per file and rule, beyond which they are reported by a single issue
+   * with their lines. New dump still contains all of them. Unlimited by default.
+   */
+  static final String REPORT_LIMIT_PROPERTY = "sonar.lits.report.limit";
+
+  /**
+   * Maximal amount of used heap in megabytes, after which LITS switches to degraded mode.
+   */
+  static final String MEMORY_BUDGET_PROPERTY = "sonar.lits.budget.memory";
+  /**
+   * Maximal duration of analysis in seconds, after which LITS switches to degraded mode.
+   */
+  static final String TIME_BUDGET_PROPERTY = "sonar.lits.budget.time";
+
   @Override
   public void define(Context context) {
     context.addExtensions(IssuesChecker.class, DumpPhase.class);
@@ -0,0 +1,491 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Multiset of lines, compressed in the way of Roaring bitmaps: lines are split by their 16 upper bits into chunks,
+ * and lower bits of each chunk are kept in the smallest of array, bitmap or run container.
+ * Lines occurring more than once are rare, so their additional occurrences are counted in a side table.
+ */
+final class LineSet {
+
+  /**
+   * Maximal cardinality of {@link ArrayContainer}, beyond which {@link BitmapContainer} is smaller.
+   */
+  private static final int ARRAY_MAX = 4096;
+
+  private static final byte ARRAY = 0;
+  private static final byte BITMAP = 1;
+  private static final byte RUN = 2;
+
+  private char[] highs = new char[0];
+  private Container[] containers = new Container[0];
+  private int chunks;
+
+  /**
+   * Additional occurrences of lines, which occur more than once.
+   */
+  private Map<Integer, Integer> duplicates;
+
+  private int size;
+
+  void add(int line) {
+    char high = (char) (line >>> 16);
+    char low = (char) line;
+    int i = Arrays.binarySearch(highs, 0, chunks, high);
+    if (i < 0) {
+      i = -i - 1;
+      insertChunk(i, high);
+    }
+    Container container = containers[i];
+    if (container.contains(low)) {
+      if (duplicates == null) {
+        duplicates = new HashMap<>();
+      }
+      duplicates.merge(line, 1, Integer::sum);
+    } else {
+      containers[i] = container.add(low);
+    }
+    size++;
+  }
+
+  /**
+   * Removes one occurrence of given line.
+   *
+   * @return false if there is no such line
+   */
+  boolean remove(int line) {
+    if (duplicates != null) {
+      Integer count = duplicates.get(line);
+      if (count != null) {
+        if (count == 1) {
+          duplicates.remove(line);
+        } else {
+          duplicates.put(line, count - 1);
+        }
+        size--;
+        return true;
+      }
+    }
+    char low = (char) line;
+    int i = Arrays.binarySearch(highs, 0, chunks, (char) (line >>> 16));
+    if (i < 0 || !containers[i].contains(low)) {
+      return false;
+    }
+    Container container = containers[i].remove(low);
+    if (container.cardinality() == 0) {
+      removeChunk(i);
+    } else {
+      containers[i] = container;
+    }
+    size--;
+    return true;
+  }
+
+  boolean contains(int line) {
+    int i = Arrays.binarySearch(highs, 0, chunks, (char) (line >>> 16));
+    return i >= 0 && containers[i].contains((char) line);
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Visits each occurrence of lines, in ascending order of lines.
+   */
+  void forEach(IntConsumer consumer) {
+    for (int i = 0; i < chunks; i++) {
+      int high = highs[i] << 16;
+      containers[i].forEach(low -> {
+        int line = high | low;
+        consumer.accept(line);
+        if (duplicates != null) {
+          Integer count = duplicates.get(line);
+          for (int j = 0; count != null && j < count; j++) {
+            consumer.accept(line);
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Converts containers into the smallest representation, usually called once all lines were added.
+   */
+  void optimize() {
+    for (int i = 0; i < chunks; i++) {
+      containers[i] = containers[i].optimize();
+    }
+  }
+
+  void write(DataOutput out) throws IOException {
+    out.writeInt(chunks);
+    for (int i = 0; i < chunks; i++) {
+      out.writeChar(highs[i]);
+      containers[i].write(out);
+    }
+    Map<Integer, Integer> d = duplicates != null ? duplicates : new HashMap<>();
+    out.writeInt(d.size());
+    for (Map.Entry<Integer, Integer> entry : d.entrySet()) {
+      out.writeInt(entry.getKey());
+      out.writeInt(entry.getValue());
+    }
+  }
+
+  static LineSet read(DataInput in) throws IOException {
+    LineSet result = new LineSet();
+    result.chunks = in.readInt();
+    result.highs = new char[result.chunks];
+    result.containers = new Container[result.chunks];
+    for (int i = 0; i < result.chunks; i++) {
+      result.highs[i] = in.readChar();
+      result.containers[i] = Container.read(in);
+      result.size += result.containers[i].cardinality();
+    }
+    int duplicates = in.readInt();
+    if (duplicates > 0) {
+      result.duplicates = new HashMap<>();
+      for (int i = 0; i < duplicates; i++) {
+        int line = in.readInt();
+        int count = in.readInt();
+        result.duplicates.put(line, count);
+        result.size += count;
+      }
+    }
+    return result;
+  }
+
+  private void insertChunk(int index, char high) {
+    if (chunks == highs.length) {
+      int capacity = Math.max(1, chunks * 2);
+      highs = Arrays.copyOf(highs, capacity);
+      containers = Arrays.copyOf(containers, capacity);
+    }
+    System.arraycopy(highs, index, highs, index + 1, chunks - index);
+    System.arraycopy(containers, index, containers, index + 1, chunks - index);
+    highs[index] = high;
+    containers[index] = new ArrayContainer();
+    chunks++;
+  }
+
+  private void removeChunk(int index) {
+    System.arraycopy(highs, index + 1, highs, index, chunks - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, chunks - index - 1);
+    chunks--;
+    containers[chunks] = null;
+  }
+
+  private interface CharConsumer {
+    void accept(char value);
+  }
+
+  private abstract static class Container {
+    abstract boolean contains(char low);
+
+    /**
+     * @param low not contained
+     * @return this or container of another type
+     */
+    abstract Container add(char low);
+
+    /**
+     * @param low contained
+     * @return this or container of another type
+     */
+    abstract Container remove(char low);
+
+    abstract int cardinality();
+
+    abstract void forEach(CharConsumer consumer);
+
+    abstract void write(DataOutput out) throws IOException;
+
+    Container optimize() {
+      int runs = countRuns();
+      int runBytes = 2 + 4 * runs;
+      int arrayBytes = 2 + 2 * cardinality();
+      int bitmapBytes = 8 * BitmapContainer.WORDS;
+      if (runBytes < Math.min(arrayBytes, bitmapBytes)) {
+        return this instanceof RunContainer ? this : RunContainer.of(this, runs);
+      }
+      return cardinality() <= ARRAY_MAX ? toArray() : toBitmap();
+    }
+
+    int countRuns() {
+      int[] runs = {0};
+      int[] previous = {-2};
+      forEach(value -> {
+        if (value != previous[0] + 1) {
+          runs[0]++;
+        }
+        previous[0] = value;
+      });
+      return runs[0];
+    }
+
+    ArrayContainer toArray() {
+      ArrayContainer result = new ArrayContainer(cardinality());
+      forEach(value -> result.values[result.cardinality++] = value);
+      return result;
+    }
+
+    BitmapContainer toBitmap() {
+      BitmapContainer result = new BitmapContainer();
+      forEach(value -> {
+        result.words[value >>> 6] |= 1L << value;
+        result.cardinality++;
+      });
+      return result;
+    }
+
+    static Container read(DataInput in) throws IOException {
+      byte type = in.readByte();
+      switch (type) {
+        case ARRAY:
+          ArrayContainer array = new ArrayContainer(in.readChar() + 1);
+          for (int i = 0; i < array.values.length; i++) {
+            array.values[i] = in.readChar();
+          }
+          array.cardinality = array.values.length;
+          return array;
+        case BITMAP:
+          BitmapContainer bitmap = new BitmapContainer();
+          for (int i = 0; i < BitmapContainer.WORDS; i++) {
+            bitmap.words[i] = in.readLong();
+            bitmap.cardinality += Long.bitCount(bitmap.words[i]);
+          }
+          return bitmap;
+        case RUN:
+          RunContainer run = new RunContainer(in.readChar() + 1);
+          for (int i = 0; i < run.starts.length; i++) {
+            run.starts[i] = in.readChar();
+            run.lengths[i] = in.readChar();
+            run.cardinality += run.lengths[i] + 1;
+          }
+          return run;
+        default:
+          throw new IllegalStateException("Unknown type of container: " + type);
+      }
+    }
+  }
+
+  /**
+   * Sorted array of values.
+   */
+  private static final class ArrayContainer extends Container {
+    private char[] values;
+    private int cardinality;
+
+    ArrayContainer() {
+      this(4);
+    }
+
+    ArrayContainer(int capacity) {
+      values = new char[capacity];
+    }
+
+    @Override
+    boolean contains(char low) {
+      return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+    }
+
+    @Override
+    Container add(char low) {
+      if (cardinality == ARRAY_MAX) {
+        return toBitmap().add(low);
+      }
+      if (cardinality == values.length) {
+        values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+      }
+      int i = -Arrays.binarySearch(values, 0, cardinality, low) - 1;
+      System.arraycopy(values, i, values, i + 1, cardinality - i);
+      values[i] = low;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(char low) {
+      int i = Arrays.binarySearch(values, 0, cardinality, low);
+      System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+      cardinality--;
+      return this;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    void forEach(CharConsumer consumer) {
+      for (int i = 0; i < cardinality; i++) {
+        consumer.accept(values[i]);
+      }
+    }
+
+    @Override
+    void write(DataOutput out) throws IOException {
+      out.writeByte(ARRAY);
+      out.writeChar(cardinality - 1);
+      for (int i = 0; i < cardinality; i++) {
+        out.writeChar(values[i]);
+      }
+    }
+  }
+
+  /**
+   * One bit per each possible value.
+   */
+  private static final class BitmapContainer extends Container {
+    static final int WORDS = (1 << 16) / 64;
+
+    private final long[] words = new long[WORDS];
+    private int cardinality;
+
+    @Override
+    boolean contains(char low) {
+      return (words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    @Override
+    Container add(char low) {
+      words[low >>> 6] |= 1L << low;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(char low) {
+      words[low >>> 6] &= ~(1L << low);
+      cardinality--;
+      return cardinality <= ARRAY_MAX ? toArray() : this;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    void forEach(CharConsumer consumer) {
+      for (int i = 0; i < WORDS; i++) {
+        long word = words[i];
+        while (word != 0) {
+          consumer.accept((char) ((i << 6) + Long.numberOfTrailingZeros(word)));
+          word &= word - 1;
+        }
+      }
+    }
+
+    @Override
+    void write(DataOutput out) throws IOException {
+      out.writeByte(BITMAP);
+      for (long word : words) {
+        out.writeLong(word);
+      }
+    }
+  }
+
+  /**
+   * Sorted runs of consecutive values, each as start and length minus one.
+   * Used only once lines are added, so it is converted into another container on modification.
+   */
+  private static final class RunContainer extends Container {
+    private final char[] starts;
+    private final char[] lengths;
+    private int cardinality;
+
+    RunContainer(int runs) {
+      starts = new char[runs];
+      lengths = new char[runs];
+    }
+
+    static RunContainer of(Container container, int runs) {
+      RunContainer result = new RunContainer(runs);
+      int[] run = {-1};
+      container.forEach(value -> {
+        if (run[0] >= 0 && value == result.starts[run[0]] + result.lengths[run[0]] + 1) {
+          result.lengths[run[0]]++;
+        } else {
+          run[0]++;
+          result.starts[run[0]] = value;
+        }
+      });
+      result.cardinality = container.cardinality();
+      return result;
+    }
+
+    @Override
+    boolean contains(char low) {
+      int i = Arrays.binarySearch(starts, low);
+      if (i >= 0) {
+        return true;
+      }
+      i = -i - 2;
+      return i >= 0 && low <= starts[i] + lengths[i];
+    }
+
+    @Override
+    Container add(char low) {
+      return (cardinality < ARRAY_MAX ? toArray() : toBitmap()).add(low);
+    }
+
+    @Override
+    Container remove(char low) {
+      return (cardinality <= ARRAY_MAX ? toArray() : toBitmap()).remove(low);
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    void forEach(CharConsumer consumer) {
+      for (int i = 0; i < starts.length; i++) {
+        for (int value = starts[i]; value <= starts[i] + lengths[i]; value++) {
+          consumer.accept((char) value);
+        }
+      }
+    }
+
+    @Override
+    void write(DataOutput out) throws IOException {
+      out.writeByte(RUN);
+      out.writeChar(starts.length - 1);
+      for (int i = 0; i < starts.length; i++) {
+        out.writeChar(starts[i]);
+        out.writeChar(lengths[i]);
+      }
+    }
+  }
+
+}
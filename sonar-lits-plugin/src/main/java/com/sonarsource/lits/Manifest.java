@@ -0,0 +1,146 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+
+/**
+ * Content hashes and numbers of issues of the files of a dump, so that dumps can be compared and verified without reading all of their files.
+ *
+ * <p>Each line of the manifest file has the format {@code <sha-256> <number of issues> <file name>}.
+ * Manifest is written even for a dump without issues, so that such dump can be verified too.
+ */
+final class Manifest {
+
+  static final String FILE_NAME = "manifest.txt";
+
+  private static final String ALGORITHM = "SHA-256";
+
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  void add(String fileName, String hash, int issues) {
+    entries.put(fileName, new Entry(hash, issues));
+  }
+
+  @CheckForNull
+  Entry get(String fileName) {
+    return entries.get(fileName);
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return hash of all entries, which identifies content of dump
+   */
+  String digest() {
+    MessageDigest digest = newDigest();
+    entries.forEach((fileName, entry) -> digest.update((entry.hash + " " + entry.issues + " " + fileName + "\n").getBytes(StandardCharsets.UTF_8)));
+    return toHex(digest.digest());
+  }
+
+  /**
+   * Verification of content applies only to files, which are read, so files which are listed, but missing, must be detected separately.
+   */
+  void verifyListedFilesExist(File dir) {
+    for (String fileName : entries.keySet()) {
+      if (!new File(dir, fileName).isFile()) {
+        throw new IllegalStateException("File listed in manifest is missing: " + new File(dir, fileName));
+      }
+    }
+  }
+
+  void write(File dir) {
+    List<String> lines = new ArrayList<>(entries.size());
+    entries.forEach((fileName, entry) -> lines.add(entry.hash + " " + entry.issues + " " + fileName));
+    try {
+      Files.write(dir.toPath().resolve(FILE_NAME), lines, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @return null if given directory doesn't contain manifest
+   */
+  @CheckForNull
+  static Manifest read(File dir) {
+    Path path = dir.toPath().resolve(FILE_NAME);
+    if (!Files.isRegularFile(path)) {
+      return null;
+    }
+    Manifest result = new Manifest();
+    try {
+      for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+        String[] parts = line.split(" ", 3);
+        if (parts.length != 3) {
+          throw new IllegalStateException("Invalid line in " + path + ": " + line);
+        }
+        int issues;
+        try {
+          issues = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+          throw new IllegalStateException("Invalid line in " + path + ": " + line, e);
+        }
+        result.add(parts[2], parts[0], issues);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return result;
+  }
+
+  static final class Entry {
+    final String hash;
+    final int issues;
+
+    Entry(String hash, int issues) {
+      this.hash = hash;
+      this.issues = issues;
+    }
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Pairs new and missing findings of the same component and rule, which are close to each other,
+ * so that shift of lines in analyzed file is not reported as differences.
+ */
+final class MovedIssues {
+
+  private MovedIssues() {
+  }
+
+  /**
+   * Both lists are sorted by rule and line, and then swept in a single pass.
+   * For findings on a line this greedy pairing is maximal.
+   * Paired findings are removed from {@code missingIssues}, and from {@code newIssues} by compacting it during the sweep.
+   *
+   * @param newIssues findings of a single component
+   * @param missingIssues findings of the same component
+   * @return number of pairs
+   */
+  static <T> int match(List<T> newIssues, Function<T, IssueKey> key, Multiset<IssueKey> missingIssues, int window) {
+    List<IssueKey> missing = new ArrayList<>(missingIssues.size());
+    for (IssueKey issueKey : missingIssues) {
+      missing.add(issueKey);
+    }
+    missing.sort(Dump.ORDER);
+    newIssues.sort(Comparator.comparing(key, Dump.ORDER));
+
+    int pairs = 0;
+    int m = 0;
+    int n = 0;
+    // unpaired new findings are moved to the front
+    int kept = 0;
+    while (n < newIssues.size() && m < missing.size()) {
+      T newElement = newIssues.get(n);
+      IssueKey newIssue = key.apply(newElement);
+      IssueKey missingIssue = missing.get(m);
+      int c = newIssue.ruleKey.compareTo(missingIssue.ruleKey);
+      if (c == 0 && Math.abs(newIssue.line - missingIssue.line) <= window) {
+        pairs++;
+        missingIssues.remove(missingIssue);
+        m++;
+        n++;
+      } else if (c < 0 || (c == 0 && newIssue.line < missingIssue.line)) {
+        newIssues.set(kept++, newElement);
+        n++;
+      } else {
+        m++;
+      }
+    }
+    while (n < newIssues.size()) {
+      newIssues.set(kept++, newIssues.get(n++));
+    }
+    newIssues.subList(kept, newIssues.size()).clear();
+    return pairs;
+  }
+
+}
@@ -17,6 +17,7 @@
 package com.sonarsource.lits;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -24,15 +25,31 @@ import java.util.Map;
 
 final class Multiset<E> implements Iterable<E> {
 
-  private final Map<E, Integer> counts = new LinkedHashMap<>();
+  private static final Multiset<Object> EMPTY = new Multiset<>(Collections.emptyMap());
+
+  private final Map<E, Integer> counts;
   private int size;
 
+  private Multiset(Map<E, Integer> counts) {
+    this.counts = counts;
+  }
+
   static <E> Multiset<E> create() {
-    return new Multiset<>();
+    return new Multiset<>(new LinkedHashMap<>());
+  }
+
+  static <E> Multiset<E> copyOf(Multiset<E> multiset) {
+    Multiset<E> result = new Multiset<>(new LinkedHashMap<>(multiset.counts));
+    result.size = multiset.size;
+    return result;
   }
 
+  /**
+   * @return shared immutable instance
+   */
+  @SuppressWarnings("unchecked")
   static <E> Multiset<E> empty() {
-    return new Multiset<>();
+    return (Multiset<E>) EMPTY;
   }
 
   void add(E element) {
@@ -0,0 +1,162 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps counts of findings in an open-addressing hash table allocated outside of Java heap,
+ * so that number of objects visible to GC depends only on number of components and rules, but not on number of findings.
+ *
+ * <p>Each slot of the table consists of four ints: component id + 1 (0 for free slot), rule id, line and count.
+ * Slots are never freed - count of consumed finding just drops to 0.
+ */
+final class OffHeapBaseline implements BaselineStore {
+
+  private static final int SLOT_SIZE = 4 * Integer.BYTES;
+  private static final int INITIAL_CAPACITY = 1 << 12;
+  /**
+   * Largest power of two, which fits into maximal size of {@link ByteBuffer}.
+   */
+  private static final int MAX_CAPACITY = 1 << 26;
+
+  private final Map<String, Integer> componentIds = new HashMap<>();
+  private final List<String> componentKeys = new ArrayList<>();
+  private final Map<String, Integer> ruleIds = new HashMap<>();
+  private final List<String> ruleKeys = new ArrayList<>();
+
+  private ByteBuffer table = ByteBuffer.allocateDirect(INITIAL_CAPACITY * SLOT_SIZE);
+  private int capacity = INITIAL_CAPACITY;
+  private int used = 0;
+
+  @Override
+  public void add(String componentKey, String ruleKey, int line) {
+    int component = id(componentKey, componentIds, componentKeys);
+    int rule = id(ruleKey, ruleIds, ruleKeys);
+    int offset = find(component, rule, line);
+    if (table.getInt(offset) == 0) {
+      table.putInt(offset, component + 1);
+      table.putInt(offset + 4, rule);
+      table.putInt(offset + 8, line);
+      table.putInt(offset + 12, 1);
+      used++;
+      if (used > capacity >>> 1) {
+        grow();
+      }
+    } else {
+      table.putInt(offset + 12, table.getInt(offset + 12) + 1);
+    }
+  }
+
+  @Override
+  public boolean remove(IssueKey issueKey) {
+    Integer component = componentIds.get(issueKey.componentKey);
+    Integer rule = ruleIds.get(issueKey.ruleKey);
+    if (component == null || rule == null) {
+      return false;
+    }
+    int offset = find(component, rule, issueKey.line);
+    int count = table.getInt(offset + 12);
+    if (count == 0) {
+      return false;
+    }
+    table.putInt(offset + 12, count - 1);
+    return true;
+  }
+
+  @Override
+  public Collection<String> componentKeys() {
+    return componentKeys;
+  }
+
+  @Override
+  public Map<String, Multiset<IssueKey>> remaining() {
+    Map<String, Multiset<IssueKey>> result = new HashMap<>();
+    for (int offset = 0; offset < capacity * SLOT_SIZE; offset += SLOT_SIZE) {
+      int count = table.getInt(offset + 12);
+      if (count > 0) {
+        String componentKey = componentKeys.get(table.getInt(offset) - 1);
+        IssueKey issueKey = new IssueKey(componentKey, ruleKeys.get(table.getInt(offset + 4)), table.getInt(offset + 8));
+        Multiset<IssueKey> issues = result.computeIfAbsent(componentKey, k -> Multiset.create());
+        for (int i = 0; i < count; i++) {
+          issues.add(issueKey);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static int id(String key, Map<String, Integer> ids, List<String> keys) {
+    Integer id = ids.get(key);
+    if (id == null) {
+      id = keys.size();
+      ids.put(key, id);
+      keys.add(key);
+    }
+    return id;
+  }
+
+  /**
+   * @return offset of the slot with given finding or of the free slot where it should be placed
+   */
+  private int find(int component, int rule, int line) {
+    int mask = capacity - 1;
+    int slot = hash(component, rule, line) & mask;
+    while (true) {
+      int offset = slot * SLOT_SIZE;
+      int storedComponent = table.getInt(offset);
+      if (storedComponent == 0
+        || (storedComponent == component + 1 && table.getInt(offset + 4) == rule && table.getInt(offset + 8) == line)) {
+        return offset;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private static int hash(int component, int rule, int line) {
+    int h = (component * 31 + rule) * 31 + line;
+    // spread bits, because only lower ones are used to select slot
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private void grow() {
+    if (capacity == MAX_CAPACITY) {
+      throw new IllegalStateException("Too many issues for off-heap baseline: " + used);
+    }
+    ByteBuffer oldTable = table;
+    int oldCapacity = capacity;
+    capacity = oldCapacity << 1;
+    table = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+    for (int offset = 0; offset < oldCapacity * SLOT_SIZE; offset += SLOT_SIZE) {
+      int component = oldTable.getInt(offset);
+      if (component != 0) {
+        int newOffset = find(component - 1, oldTable.getInt(offset + 4), oldTable.getInt(offset + 8));
+        table.putInt(newOffset, component);
+        table.putInt(newOffset + 4, oldTable.getInt(offset + 4));
+        table.putInt(newOffset + 8, oldTable.getInt(offset + 8));
+        table.putInt(newOffset + 12, oldTable.getInt(offset + 12));
+      }
+    }
+  }
+
+}
@@ -0,0 +1,210 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import javax.annotation.CheckForNull;
+import org.sonar.api.utils.MessageException;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Previous findings served by {@link BaselineServer}.
+ * Findings of a component are requested on first access, and then consumed locally.
+ */
+final class RemoteBaseline implements Baseline {
+
+  private static final Logger LOG = Loggers.get(RemoteBaseline.class);
+
+  private static final int CONNECT_TIMEOUT_MS = 1000;
+
+  /**
+   * Bounds waiting for any response, including the first one, which might require server to load dump,
+   * so that a stopped or hung server doesn't block analysis.
+   */
+  private static final int READ_TIMEOUT_MS = 60_000;
+
+  private final int port;
+  private final int readTimeoutMs;
+  private final Socket socket;
+  private final DataInputStream in;
+  private final DataOutputStream out;
+
+  private final Set<String> componentKeys;
+  private final Map<String, Multiset<IssueKey>> fetched = new HashMap<>();
+
+  private RemoteBaseline(int port, int readTimeoutMs, Socket socket) throws IOException {
+    this.port = port;
+    this.readTimeoutMs = readTimeoutMs;
+    this.socket = socket;
+    this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    out.writeByte(BaselineServer.COMPONENT_KEYS);
+    out.flush();
+    this.componentKeys = Collections.unmodifiableSet(new LinkedHashSet<>(BaselineServer.readStrings(in)));
+  }
+
+  /**
+   * @return null if server is not available, does not respond or serves another directory
+   */
+  @CheckForNull
+  static RemoteBaseline connect(int port, File dir) {
+    return connect(port, dir, READ_TIMEOUT_MS);
+  }
+
+  @CheckForNull
+  static RemoteBaseline connect(int port, File dir, int readTimeoutMs) {
+    Socket socket = new Socket();
+    try {
+      socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MS);
+      socket.setSoTimeout(readTimeoutMs);
+      DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      out.writeByte(BaselineServer.HELLO);
+      out.writeUTF(dir.getAbsolutePath());
+      out.flush();
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      if (!in.readBoolean()) {
+        LOG.warn("Baseline server on port {} can't be used: {}", port, in.readUTF());
+        socket.close();
+        return null;
+      }
+      return new RemoteBaseline(port, readTimeoutMs, socket);
+    } catch (IOException e) {
+      LOG.warn("Baseline server on port {} is not available: {}", port, e.getMessage());
+      closeQuietly(socket);
+      return null;
+    }
+  }
+
+  @Override
+  public boolean remove(IssueKey issueKey) {
+    Multiset<IssueKey> componentIssues = get(issueKey.componentKey);
+    return componentIssues != null && componentIssues.remove(issueKey);
+  }
+
+  @Override
+  public Collection<String> componentKeys() {
+    return componentKeys;
+  }
+
+  /**
+   * @return live view, which requests findings of components on access
+   */
+  @Override
+  public Map<String, Multiset<IssueKey>> remaining() {
+    return remaining(componentKey -> true);
+  }
+
+  /**
+   * Findings of components not accepted by given filter are never requested, so that their keys are the only data transferred.
+   *
+   * @return live view restricted to accepted components, which requests findings of components on access
+   */
+  Map<String, Multiset<IssueKey>> remaining(Predicate<String> componentFilter) {
+    return new AbstractMap<String, Multiset<IssueKey>>() {
+      @Override
+      public Multiset<IssueKey> get(Object key) {
+        return key instanceof String && componentFilter.test((String) key) ? RemoteBaseline.this.get((String) key) : null;
+      }
+
+      @Override
+      public Set<Entry<String, Multiset<IssueKey>>> entrySet() {
+        List<String> accepted = new ArrayList<>();
+        List<String> notFetched = new ArrayList<>();
+        for (String componentKey : componentKeys) {
+          if (componentFilter.test(componentKey)) {
+            accepted.add(componentKey);
+            if (!fetched.containsKey(componentKey)) {
+              notFetched.add(componentKey);
+            }
+          }
+        }
+        fetch(notFetched);
+        Map<String, Multiset<IssueKey>> result = new LinkedHashMap<>();
+        for (String componentKey : accepted) {
+          result.put(componentKey, fetched.get(componentKey));
+        }
+        return Collections.unmodifiableMap(result).entrySet();
+      }
+    };
+  }
+
+  @CheckForNull
+  private Multiset<IssueKey> get(String componentKey) {
+    if (!componentKeys.contains(componentKey)) {
+      return null;
+    }
+    Multiset<IssueKey> componentIssues = fetched.get(componentKey);
+    if (componentIssues == null) {
+      fetch(Collections.singletonList(componentKey));
+      componentIssues = fetched.get(componentKey);
+    }
+    return componentIssues;
+  }
+
+  private void fetch(List<String> keys) {
+    if (keys.isEmpty()) {
+      return;
+    }
+    try {
+      out.writeByte(BaselineServer.COMPONENTS);
+      BaselineServer.writeStrings(out, keys);
+      out.flush();
+      for (String componentKey : keys) {
+        fetched.put(componentKey, BaselineServer.readIssues(in, componentKey));
+      }
+    } catch (SocketTimeoutException e) {
+      throw MessageException.of("Baseline server on port " + port + " did not respond within " + readTimeoutMs + " ms");
+    } catch (IOException e) {
+      throw MessageException.of("Baseline server on port " + port + " failed: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void close() {
+    closeQuietly(socket);
+  }
+
+  private static void closeQuietly(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Caps number of differences reported as issues per component and rule.
+ * Differences beyond the cap are only collected, to be reported by a single summarizing issue,
+ * while all of them are still written to the new dump.
+ */
+final class ReportLimit {
+
+  /**
+   * Maximal number of lines listed in a summary per kind of differences, so that message stays short.
+   */
+  private static final int MAX_LISTED_LINES = 200;
+
+  private final int limit;
+
+  /**
+   * Counters indexed by component key and rule key.
+   */
+  private final Map<String, Map<String, Overflow>> components = new HashMap<>();
+
+  /**
+   * @param limit maximal number of reported issues per component and rule, 0 for no limit
+   */
+  ReportLimit(int limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * @return true if difference should be reported as an issue, false if it is only collected for a summary
+   */
+  boolean report(IssueKey issueKey, boolean missing) {
+    if (limit <= 0) {
+      return true;
+    }
+    Overflow overflow = components.computeIfAbsent(issueKey.componentKey, k -> new HashMap<>())
+      .computeIfAbsent(issueKey.ruleKey, k -> new Overflow());
+    if (overflow.reported < limit) {
+      overflow.reported++;
+      return true;
+    }
+    (missing ? overflow.missingLines : overflow.newLines).add(issueKey.line);
+    return false;
+  }
+
+  /**
+   * Removes counters of given component.
+   *
+   * @return differences beyond the cap indexed by rule key
+   */
+  Map<String, Overflow> remove(String componentKey) {
+    Map<String, Overflow> rules = components.remove(componentKey);
+    if (rules == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, Overflow> result = new TreeMap<>();
+    rules.forEach((ruleKey, overflow) -> {
+      if (!overflow.isEmpty()) {
+        result.put(ruleKey, overflow);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * @return keys of components, for which counters were not yet removed
+   */
+  Set<String> componentKeys() {
+    return components.keySet();
+  }
+
+  static final class Overflow {
+    private int reported;
+    final IntList newLines = new IntList();
+    final IntList missingLines = new IntList();
+
+    boolean isEmpty() {
+      return newLines.size() == 0 && missingLines.size() == 0;
+    }
+
+    String message() {
+      StringBuilder sb = new StringBuilder();
+      append(sb, newLines, "new");
+      if (newLines.size() > 0 && missingLines.size() > 0) {
+        sb.append(", ");
+      }
+      append(sb, missingLines, "missing");
+      return sb.append(" beyond limit of ").append(reported).append(" issues").toString();
+    }
+
+    private static void append(StringBuilder sb, IntList lines, String kind) {
+      if (lines.size() == 0) {
+        return;
+      }
+      lines.sort();
+      sb.append(lines.size()).append(' ').append(kind).append(" at lines ");
+      for (int i = 0; i < Math.min(lines.size(), MAX_LISTED_LINES); i++) {
+        if (i > 0) {
+          sb.append(' ');
+        }
+        sb.append(lines.get(i));
+      }
+      if (lines.size() > MAX_LISTED_LINES) {
+        sb.append(" ...");
+      }
+    }
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * Rules, which are compared, given by keys or by patterns, where {@code *} matches any sequence of characters.
+ */
+final class RuleSelection {
+
+  static final RuleSelection ALL = new RuleSelection("", null);
+
+  private final String description;
+  private final Pattern pattern;
+
+  /**
+   * Results by rule key, since the same rules are tested again and again.
+   */
+  private final Map<RuleKey, Boolean> cache = new HashMap<>();
+
+  private RuleSelection(String description, Pattern pattern) {
+    this.description = description;
+    this.pattern = pattern;
+  }
+
+  static RuleSelection of(String... patterns) {
+    List<String> values = new ArrayList<>();
+    List<String> regexps = new ArrayList<>();
+    for (String value : patterns) {
+      String trimmed = value.trim();
+      if (!trimmed.isEmpty()) {
+        values.add(trimmed);
+        StringBuilder regexp = new StringBuilder();
+        for (String part : trimmed.split("\\*", -1)) {
+          if (regexp.length() > 0) {
+            regexp.append(".*");
+          }
+          regexp.append(Pattern.quote(part));
+        }
+        regexps.add(regexp.toString());
+      }
+    }
+    if (values.isEmpty()) {
+      return ALL;
+    }
+    return new RuleSelection(String.join(",", values), Pattern.compile(String.join("|", regexps)));
+  }
+
+  boolean isAll() {
+    return pattern == null;
+  }
+
+  boolean contains(String ruleKey) {
+    return pattern == null || pattern.matcher(ruleKey).matches();
+  }
+
+  boolean contains(RuleKey ruleKey) {
+    return pattern == null || cache.computeIfAbsent(ruleKey, k -> contains(k.toString()));
+  }
+
+  /**
+   * @return patterns separated by comma, which allow to recreate this selection
+   */
+  @Override
+  public String toString() {
+    return description;
+  }
+
+}
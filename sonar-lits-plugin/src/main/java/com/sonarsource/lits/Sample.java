@@ -0,0 +1,57 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+/**
+ * Deterministic sample of components, selected by hash of their keys, so that the same components are selected by all analyses.
+ */
+final class Sample {
+
+  static final Sample ALL = new Sample(1);
+
+  private final double rate;
+  private final long threshold;
+
+  Sample(double rate) {
+    if (!(rate > 0 && rate <= 1)) {
+      throw new IllegalArgumentException("Rate must be in (0, 1]: " + rate);
+    }
+    this.rate = rate;
+    this.threshold = (long) (rate * (1L << 32));
+  }
+
+  double rate() {
+    return rate;
+  }
+
+  boolean isFull() {
+    return rate >= 1;
+  }
+
+  boolean contains(String componentKey) {
+    if (isFull()) {
+      return true;
+    }
+    // String.hashCode is specified, so selection does not depend on JVM
+    int h = (componentKey.hashCode() ^ 0x5BD1E995) * 0x9E3779B9;
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    return (h & 0xFFFFFFFFL) < threshold;
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Baseline, which shares strings of component and rule keys with other baselines, so that keys present in several baselines
+ * are kept in memory only once.
+ */
+final class SharedKeysBaseline implements BaselineStore {
+
+  private final BaselineStore delegate;
+  private final ConcurrentMap<String, String> keys;
+
+  /**
+   * @param keys shared between baselines, might be used concurrently by baselines loaded in background
+   */
+  SharedKeysBaseline(BaselineStore delegate, ConcurrentMap<String, String> keys) {
+    this.delegate = delegate;
+    this.keys = keys;
+  }
+
+  @Override
+  public void add(String componentKey, String ruleKey, int line) {
+    delegate.add(intern(componentKey), intern(ruleKey), line);
+  }
+
+  private String intern(String key) {
+    String result = keys.putIfAbsent(key, key);
+    return result != null ? result : key;
+  }
+
+  @Override
+  public boolean remove(IssueKey issueKey) {
+    return delegate.remove(issueKey);
+  }
+
+  @Override
+  public Collection<String> componentKeys() {
+    return delegate.componentKeys();
+  }
+
+  @Override
+  public Map<String, Multiset<IssueKey>> remaining() {
+    return delegate.remaining();
+  }
+
+  @Override
+  public void close() {
+    delegate.close();
+  }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * State of {@link IssuesChecker} at a phase boundary, from which analysis can be finished without analyzers,
+ * see {@link FinishAnalysis}.
+ */
+final class Snapshot {
+
+  private static final int MAGIC = 0x4c495453;
+  private static final int VERSION = 5;
+
+  /**
+   * All findings were filtered, missing findings were not yet computed.
+   */
+  static final byte FILTERED = 1;
+
+  /**
+   * Missing findings were computed, dump was not yet saved.
+   */
+  static final byte MISSING = 2;
+
+  byte phase;
+  File newDumpFile;
+  File differencesFile;
+  boolean reuseOutput;
+  boolean compactOutput;
+  double sampleRate = 1;
+  /**
+   * Patterns of {@link RuleSelection}, empty if all rules are compared.
+   */
+  String selectedRules = "";
+  int lineWindow;
+
+  boolean different;
+  int differences;
+  int moved;
+  @Nullable
+  String degradationReason;
+
+  Collection<String> inactiveRules = Collections.emptyList();
+  Collection<String> missingResources = Collections.emptyList();
+  Histogram histogram = new Histogram();
+
+  /**
+   * Only in phase {@link #FILTERED}.
+   */
+  Collection<String> activeRuleKeys = Collections.emptyList();
+
+  /**
+   * Only in phase {@link #FILTERED}, in order of processing.
+   */
+  Collection<String> analyzedComponentKeys = Collections.emptyList();
+
+  Map<String, Multiset<IssueKey>> previous = Collections.emptyMap();
+  Map<String, List<IssuesChecker.DeferredIssue>> deferred = Collections.emptyMap();
+
+  /**
+   * New findings.
+   */
+  Iterable<IssueKey> issues = Collections.emptyList();
+
+  void write(File file) {
+    AtomicFiles.write(file, os -> {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeByte(phase);
+      out.writeUTF(newDumpFile.getPath());
+      out.writeUTF(differencesFile.getPath());
+      out.writeBoolean(reuseOutput);
+      out.writeBoolean(compactOutput);
+      out.writeDouble(sampleRate);
+      out.writeUTF(selectedRules);
+      out.writeInt(lineWindow);
+      out.writeBoolean(different);
+      out.writeInt(differences);
+      out.writeInt(moved);
+      out.writeBoolean(degradationReason != null);
+      if (degradationReason != null) {
+        out.writeUTF(degradationReason);
+      }
+      writeStrings(out, inactiveRules);
+      writeStrings(out, missingResources);
+      histogram.write(out);
+      writeStrings(out, activeRuleKeys);
+      writeStrings(out, analyzedComponentKeys);
+
+      Keys keys = new Keys();
+      out.writeInt(previous.size());
+      for (Map.Entry<String, Multiset<IssueKey>> entry : previous.entrySet()) {
+        keys.write(out, entry.getKey());
+        // lines of rules reporting findings on most of the lines are compressed
+        Map<String, LineSet> rules = new HashMap<>();
+        for (IssueKey issueKey : entry.getValue()) {
+          rules.computeIfAbsent(issueKey.ruleKey, k -> new LineSet()).add(issueKey.line);
+        }
+        out.writeInt(rules.size());
+        for (Map.Entry<String, LineSet> rule : rules.entrySet()) {
+          keys.write(out, rule.getKey());
+          rule.getValue().optimize();
+          rule.getValue().write(out);
+        }
+      }
+      out.writeInt(deferred.size());
+      for (Map.Entry<String, List<IssuesChecker.DeferredIssue>> entry : deferred.entrySet()) {
+        keys.write(out, entry.getKey());
+        out.writeInt(entry.getValue().size());
+        for (IssuesChecker.DeferredIssue deferredIssue : entry.getValue()) {
+          keys.write(out, deferredIssue.issueKey.ruleKey);
+          out.writeInt(deferredIssue.issueKey.line);
+          out.writeBoolean(deferredIssue.message != null);
+          if (deferredIssue.message != null) {
+            out.writeUTF(deferredIssue.message);
+          }
+        }
+      }
+      // number of new findings is not known in advance
+      for (IssueKey issueKey : issues) {
+        out.writeBoolean(true);
+        keys.write(out, issueKey.componentKey);
+        keys.write(out, issueKey.ruleKey);
+        out.writeInt(issueKey.line);
+      }
+      out.writeBoolean(false);
+      out.flush();
+    });
+  }
+
+  static Snapshot read(File file) {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IllegalStateException("Unsupported snapshot: " + file);
+      }
+      Snapshot snapshot = new Snapshot();
+      snapshot.phase = in.readByte();
+      snapshot.newDumpFile = new File(in.readUTF());
+      snapshot.differencesFile = new File(in.readUTF());
+      snapshot.reuseOutput = in.readBoolean();
+      snapshot.compactOutput = in.readBoolean();
+      snapshot.sampleRate = in.readDouble();
+      snapshot.selectedRules = in.readUTF();
+      snapshot.lineWindow = in.readInt();
+      snapshot.different = in.readBoolean();
+      snapshot.differences = in.readInt();
+      snapshot.moved = in.readInt();
+      snapshot.degradationReason = in.readBoolean() ? in.readUTF() : null;
+      snapshot.inactiveRules = readStrings(in);
+      snapshot.missingResources = readStrings(in);
+      snapshot.histogram = Histogram.read(in);
+      snapshot.activeRuleKeys = readStrings(in);
+      snapshot.analyzedComponentKeys = readStrings(in);
+
+      Keys keys = new Keys();
+      int components = in.readInt();
+      Map<String, Multiset<IssueKey>> previous = new HashMap<>(components * 2);
+      for (int i = 0; i < components; i++) {
+        String componentKey = keys.read(in);
+        Multiset<IssueKey> componentIssues = Multiset.create();
+        int rules = in.readInt();
+        for (int j = 0; j < rules; j++) {
+          String ruleKey = keys.read(in);
+          LineSet.read(in).forEach(line -> componentIssues.add(new IssueKey(componentKey, ruleKey, line)));
+        }
+        previous.put(componentKey, componentIssues);
+      }
+      snapshot.previous = previous;
+      components = in.readInt();
+      Map<String, List<IssuesChecker.DeferredIssue>> deferred = new HashMap<>(components * 2);
+      for (int i = 0; i < components; i++) {
+        String componentKey = keys.read(in);
+        int size = in.readInt();
+        List<IssuesChecker.DeferredIssue> deferredIssues = new ArrayList<>(size);
+        for (int j = 0; j < size; j++) {
+          IssueKey issueKey = new IssueKey(componentKey, keys.read(in), in.readInt());
+          deferredIssues.add(new IssuesChecker.DeferredIssue(issueKey, in.readBoolean() ? in.readUTF() : null));
+        }
+        deferred.put(componentKey, deferredIssues);
+      }
+      snapshot.deferred = deferred;
+      List<IssueKey> issues = new ArrayList<>();
+      while (in.readBoolean()) {
+        issues.add(new IssueKey(keys.read(in), keys.read(in), in.readInt()));
+      }
+      snapshot.issues = issues;
+      return snapshot;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+    out.writeInt(values.size());
+    for (String value : values) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static List<String> readStrings(DataInputStream in) throws IOException {
+    int size = in.readInt();
+    List<String> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(in.readUTF());
+    }
+    return result;
+  }
+
+  /**
+   * Component and rule keys are written only once, and then referenced by their index.
+   */
+  private static final class Keys {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    void write(DataOutputStream out, String key) throws IOException {
+      Integer id = ids.get(key);
+      if (id == null) {
+        ids.put(key, ids.size());
+        out.writeInt(-1);
+        out.writeUTF(key);
+      } else {
+        out.writeInt(id);
+      }
+    }
+
+    String read(DataInputStream in) throws IOException {
+      int id = in.readInt();
+      if (id == -1) {
+        String key = in.readUTF();
+        values.add(key);
+        return key;
+      }
+      return values.get(id);
+    }
+  }
+
+}
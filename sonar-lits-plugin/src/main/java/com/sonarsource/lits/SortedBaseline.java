@@ -0,0 +1,181 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps findings of each component as a sorted array of primitive (rule id, line) keys,
+ * which are matched by binary search and marked as consumed in a bitmap.
+ *
+ * <p>Files of dump are sorted by component and line, so keys are usually added in order and don't need to be sorted at all.
+ */
+final class SortedBaseline implements BaselineStore {
+
+  private final Map<String, Integer> ruleIds = new HashMap<>();
+  private final List<String> ruleKeys = new ArrayList<>();
+  private final Map<String, Component> components = new HashMap<>();
+
+  @Override
+  public void add(String componentKey, String ruleKey, int line) {
+    Integer rule = ruleIds.get(ruleKey);
+    if (rule == null) {
+      rule = ruleKeys.size();
+      ruleIds.put(ruleKey, rule);
+      ruleKeys.add(ruleKey);
+    }
+    components.computeIfAbsent(componentKey, k -> new Component()).add(key(rule, line));
+  }
+
+  @Override
+  public boolean remove(IssueKey issueKey) {
+    Component component = components.get(issueKey.componentKey);
+    Integer rule = ruleIds.get(issueKey.ruleKey);
+    return component != null && rule != null && component.remove(key(rule, issueKey.line));
+  }
+
+  @Override
+  public Collection<String> componentKeys() {
+    return components.keySet();
+  }
+
+  @Override
+  public Map<String, Multiset<IssueKey>> remaining() {
+    Map<String, Multiset<IssueKey>> result = new HashMap<>();
+    for (Map.Entry<String, Component> entry : components.entrySet()) {
+      String componentKey = entry.getKey();
+      Component component = entry.getValue();
+      component.ensureSorted();
+      Multiset<IssueKey> issues = null;
+      for (int i = component.nextRemaining(0); i >= 0; i = component.nextRemaining(i + 1)) {
+        if (issues == null) {
+          issues = Multiset.create();
+          result.put(componentKey, issues);
+        }
+        long key = component.keys[i];
+        issues.add(new IssueKey(componentKey, ruleKeys.get(rule(key)), line(key)));
+      }
+    }
+    return result;
+  }
+
+  private static long key(int rule, int line) {
+    return ((long) rule << 32) | (line & 0xFFFFFFFFL);
+  }
+
+  private static int rule(long key) {
+    return (int) (key >>> 32);
+  }
+
+  private static int line(long key) {
+    return (int) key;
+  }
+
+  private static final class Component {
+    private long[] keys = new long[4];
+    private int size;
+    private long[] consumed = new long[0];
+    private boolean sorted = true;
+
+    void add(long key) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+      }
+      if (size > 0 && keys[size - 1] > key) {
+        sorted = false;
+      }
+      keys[size++] = key;
+    }
+
+    boolean remove(long key) {
+      ensureSorted();
+      for (int i = lowerBound(key); i < size && keys[i] == key; i++) {
+        if (!isConsumed(i)) {
+          consumed[i >>> 6] |= 1L << i;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * @return index of first not consumed key starting from given one, or -1
+     */
+    int nextRemaining(int from) {
+      for (int i = from; i < size; i++) {
+        long word = ~consumed[i >>> 6] & (-1L << i);
+        if (word != 0) {
+          int index = ((i >>> 6) << 6) + Long.numberOfTrailingZeros(word);
+          return index < size ? index : -1;
+        }
+        // skip the rest of the word
+        i = ((i >>> 6) << 6) + 63;
+      }
+      return -1;
+    }
+
+    private boolean isConsumed(int index) {
+      return (consumed[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Keys might be added after some of them were consumed, when rules are loaded lazily.
+     */
+    void ensureSorted() {
+      int words = (size + 63) >>> 6;
+      if (sorted) {
+        if (consumed.length < words) {
+          consumed = Arrays.copyOf(consumed, words);
+        }
+        return;
+      }
+      long[] consumedKeys = new long[size];
+      int consumedCount = 0;
+      for (int i = 0; i < Math.min(size, consumed.length << 6); i++) {
+        if (isConsumed(i)) {
+          consumedKeys[consumedCount++] = keys[i];
+        }
+      }
+      Arrays.sort(keys, 0, size);
+      consumed = new long[words];
+      sorted = true;
+      for (int i = 0; i < consumedCount; i++) {
+        remove(consumedKeys[i]);
+      }
+    }
+
+    private int lowerBound(long key) {
+      int low = 0;
+      int high = size;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (keys[mid] < key) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+
+}
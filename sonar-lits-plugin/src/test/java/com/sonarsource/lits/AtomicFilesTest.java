@@ -0,0 +1,73 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AtomicFilesTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void publish_directory() throws Exception {
+    File parent = temporaryFolder.newFolder();
+    File dir = new File(parent, "dump");
+    // leftover of interrupted write
+    assertThat(new File(parent, "dump.tmp123").mkdir()).isTrue();
+
+    FileLock lock = AtomicFiles.lock(dir);
+    AtomicFiles.publishDirectory(dir, tmp -> assertThat(new File(tmp, "old").mkdir()).isTrue());
+    AtomicFiles.publishDirectory(dir, tmp -> {
+      assertThat(new File(dir, "old")).exists();
+      assertThat(new File(tmp, "new").mkdir()).isTrue();
+    });
+    AtomicFiles.release(dir, lock);
+
+    assertThat(dir.list()).containsOnly("new");
+    assertThat(parent.list()).containsOnly("dump");
+  }
+
+  @Test
+  public void write() throws Exception {
+    File file = new File(temporaryFolder.newFolder(), "differences");
+    AtomicFiles.write(file, "old".getBytes(StandardCharsets.UTF_8));
+    AtomicFiles.write(file, "new".getBytes(StandardCharsets.UTF_8));
+
+    assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)).isEqualTo("new");
+    assertThat(file.getParentFile().list()).containsOnly("differences");
+  }
+
+  @Test
+  public void private_constructor() throws Exception {
+    Constructor<AtomicFiles> constructor = AtomicFiles.class.getDeclaredConstructor();
+    assertThat(constructor.isAccessible()).isFalse();
+    constructor.setAccessible(true);
+    constructor.newInstance();
+  }
+
+}
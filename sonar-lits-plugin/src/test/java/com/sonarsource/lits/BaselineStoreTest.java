@@ -0,0 +1,108 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Contract shared by all implementations of {@link BaselineStore}, specifics of each implementation are tested separately.
+ */
+@RunWith(Parameterized.class)
+public class BaselineStoreTest {
+
+  @Parameters(name = "{0}")
+  public static Collection<Object[]> stores() {
+    return Arrays.asList(new Object[][] {
+      {"heap", (Supplier<BaselineStore>) HeapBaseline::new},
+      {"offheap", (Supplier<BaselineStore>) OffHeapBaseline::new},
+      {"sorted", (Supplier<BaselineStore>) SortedBaseline::new},
+      {"bitmap", (Supplier<BaselineStore>) BitmapBaseline::new},
+      {"shared keys", (Supplier<BaselineStore>) () -> new SharedKeysBaseline(new HeapBaseline(), new ConcurrentHashMap<>())},
+    });
+  }
+
+  private final Supplier<BaselineStore> factory;
+
+  public BaselineStoreTest(String name, Supplier<BaselineStore> factory) {
+    this.factory = factory;
+  }
+
+  @Test
+  public void remove_should_consume_occurrences() {
+    BaselineStore baseline = factory.get();
+    baseline.add("component", "repo:rule", 1);
+    baseline.add("component", "repo:rule", 1);
+
+    assertThat(baseline.remove(new IssueKey("component", "repo:rule", 1))).isTrue();
+    assertThat(baseline.remove(new IssueKey("component", "repo:rule", 1))).isTrue();
+    assertThat(baseline.remove(new IssueKey("component", "repo:rule", 1))).isFalse();
+    assertThat(baseline.remove(new IssueKey("component", "repo:rule", 2))).isFalse();
+    assertThat(baseline.remove(new IssueKey("other", "repo:rule", 1))).isFalse();
+    assertThat(baseline.remove(new IssueKey("component", "repo:other", 1))).isFalse();
+    assertThat(baseline.componentKeys()).containsOnly("component");
+    assertThat(size(baseline.remaining())).isEqualTo(0);
+  }
+
+  @Test
+  public void remaining_should_group_findings_by_component() {
+    BaselineStore baseline = factory.get();
+    baseline.add("component1", "repo:rule1", 1);
+    baseline.add("component1", "repo:rule2", 2);
+    baseline.add("component2", "repo:rule1", 1);
+    assertThat(baseline.remove(new IssueKey("component1", "repo:rule1", 1))).isTrue();
+
+    Map<String, Multiset<IssueKey>> remaining = baseline.remaining();
+    assertThat(remaining.get("component1").size()).isEqualTo(1);
+    assertThat(remaining.get("component1").contains(new IssueKey("component1", "repo:rule2", 2))).isTrue();
+    assertThat(remaining.get("component2").size()).isEqualTo(1);
+    assertThat(remaining.get("component2").contains(new IssueKey("component2", "repo:rule1", 1))).isTrue();
+    assertThat(remaining.get("component3")).isNull();
+  }
+
+  @Test
+  public void should_add_after_remove() {
+    BaselineStore baseline = factory.get();
+    baseline.add("component", "repo:rule", 1);
+    assertThat(baseline.remove(new IssueKey("component", "repo:rule", 1))).isTrue();
+    // added after consumption, as with lazy loading of rules
+    baseline.add("component", "repo:other", 1);
+    baseline.add("component", "repo:rule", 1);
+
+    assertThat(baseline.remove(new IssueKey("component", "repo:other", 1))).isTrue();
+    assertThat(size(baseline.remaining())).isEqualTo(1);
+    assertThat(baseline.remaining().get("component").contains(new IssueKey("component", "repo:rule", 1))).isTrue();
+  }
+
+  private static int size(Map<String, Multiset<IssueKey>> remaining) {
+    int result = 0;
+    for (Multiset<IssueKey> issues : remaining.values()) {
+      result += issues.size();
+    }
+    return result;
+  }
+
+}
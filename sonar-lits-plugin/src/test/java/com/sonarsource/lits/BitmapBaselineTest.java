@@ -0,0 +1,43 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.Map;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BitmapBaselineTest {
+
+  @Test
+  public void should_add_after_remove() {
+    BitmapBaseline baseline = new BitmapBaseline();
+    for (int line = 1; line <= 100; line++) {
+      baseline.add("component", "repo:rule", line);
+    }
+    assertThat(baseline.remove(new IssueKey("component", "repo:rule", 1))).isTrue();
+    // added after consumption, as with lazy loading of rules
+    baseline.add("component", "repo:other", 1);
+    baseline.add("component", "repo:rule", 1);
+
+    assertThat(baseline.remove(new IssueKey("component", "repo:other", 1))).isTrue();
+    Map<String, Multiset<IssueKey>> remaining = baseline.remaining();
+    assertThat(remaining.get("component").size()).isEqualTo(100);
+    assertThat(remaining.get("component").contains(new IssueKey("component", "repo:rule", 1))).isTrue();
+  }
+
+}
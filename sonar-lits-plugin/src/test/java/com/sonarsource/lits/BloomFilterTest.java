@@ -0,0 +1,63 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BloomFilterTest {
+
+  @Test
+  public void should_not_have_false_negatives() {
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      keys.add("project:src/File" + i + ".java");
+    }
+    BloomFilter filter = BloomFilter.of(keys);
+
+    for (String key : keys) {
+      assertThat(filter.mightContain(key)).isTrue();
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (filter.mightContain("project:test/File" + i + ".java")) {
+        falsePositives++;
+      }
+    }
+    assertThat(falsePositives).isLessThan(500);
+  }
+
+  @Test
+  public void should_contain_elements_put_after_creation() {
+    BloomFilter filter = BloomFilter.create(2);
+    assertThat(filter.mightContain("project:src/Example.java")).isFalse();
+    filter.put("project:src/Example.java");
+    assertThat(filter.mightContain("project:src/Example.java")).isTrue();
+  }
+
+  @Test
+  public void empty() {
+    BloomFilter filter = BloomFilter.of(Collections.<String>emptyList());
+    assertThat(filter.mightContain("")).isFalse();
+    assertThat(filter.mightContain("project:src/Example.java")).isFalse();
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class CompactDumpTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final List<IssueKey> issues = new ArrayList<>(Arrays.asList(
+    new IssueKey("project:src/A.java", "squid:S1", 1),
+    new IssueKey("project:src/A.java", "squid:S1", 1),
+    new IssueKey("project:src/A.java", "squid:S1", 70_000),
+    new IssueKey("project:src/B.java", "squid:S1", 0),
+    new IssueKey("project:src/B.java", "squid:S2", 3)));
+
+  @Test
+  public void save_load() throws Exception {
+    File dir = temporaryFolder.newFolder();
+    issues.sort(Dump.ORDER);
+    Manifest manifest = CompactDump.save(issues.iterator(), dir);
+    assertThat(dir.list()).containsOnly(CompactDump.FILE_NAME, Manifest.FILE_NAME);
+    assertThat(manifest.get(CompactDump.FILE_NAME).issues).isEqualTo(5);
+
+    Map<String, Multiset<IssueKey>> result = new HashMap<>();
+    ComponentDictionary dictionary = Dump.load(dir, new HeapBaseline(result), componentKey -> true, componentKey -> {
+    }, Manifest.read(dir));
+    assertThat(dictionary.size()).isEqualTo(2);
+    assertThat(result.get("project:src/A.java").contains(new IssueKey("project:src/A.java", "squid:S1", 70_000))).isTrue();
+    assertThat(result.get("project:src/A.java").size()).isEqualTo(3);
+    assertThat(result.get("project:src/B.java").size()).isEqualTo(2);
+  }
+
+  @Test
+  public void should_skip_rules_and_components() throws Exception {
+    File dir = temporaryFolder.newFolder();
+    issues.sort(Dump.ORDER);
+    CompactDump.save(issues.iterator(), dir);
+
+    Map<String, Multiset<IssueKey>> result = new HashMap<>();
+    List<String> skippedRules = new ArrayList<>();
+    List<String> skippedComponents = new ArrayList<>();
+    CompactDump.load(dir, new HeapBaseline(result), "squid:S1"::equals, skippedRules::add, "project:src/B.java"::equals, skippedComponents::add, null);
+    assertThat(skippedRules).containsOnly("squid:S2");
+    assertThat(skippedComponents).containsOnly("project:src/A.java");
+    assertThat(result.keySet()).containsOnly("project:src/B.java");
+    assertThat(result.get("project:src/B.java").size()).isEqualTo(1);
+    assertThat(result.get("project:src/B.java").contains(new IssueKey("project:src/B.java", "squid:S1", 0))).isTrue();
+  }
+
+  @Test
+  public void should_verify_checksum() throws Exception {
+    File dir = temporaryFolder.newFolder();
+    issues.sort(Dump.ORDER);
+    CompactDump.save(issues.iterator(), dir);
+    File file = new File(dir, CompactDump.FILE_NAME);
+    byte[] content = Files.readAllBytes(file.toPath());
+    content[content.length - 2] ^= 1;
+    Files.write(file.toPath(), content);
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> Dump.load(dir, new HeapBaseline(new HashMap<>()), componentKey -> true, componentKey -> {
+    }, Manifest.read(dir)));
+    assertEquals("Checksum mismatch: " + file, e.getMessage());
+  }
+
+  @Test
+  public void stale_compact_dump_should_be_deleted() throws Exception {
+    File dir = temporaryFolder.newFolder();
+    issues.sort(Dump.ORDER);
+    CompactDump.save(issues.iterator(), dir);
+    Dump.deleteStale(dir, Dump.save(issues, dir));
+    assertThat(CompactDump.exists(dir)).isFalse();
+    assertThat(dir.list()).containsOnly("squid-S1.json", "squid-S2.json", Manifest.FILE_NAME);
+  }
+
+}
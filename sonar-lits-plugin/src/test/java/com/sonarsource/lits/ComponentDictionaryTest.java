@@ -0,0 +1,69 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+public class ComponentDictionaryTest {
+
+  @Test
+  public void ids_follow_order_of_keys() {
+    ComponentDictionary dictionary = ComponentDictionary.of(Arrays.asList("project:src/b.c", "project:src/a.c", "project", "project:src/a.c"));
+    assertThat(dictionary.size()).isEqualTo(3);
+    assertThat(dictionary.key(0)).isEqualTo("project");
+    assertThat(dictionary.key(1)).isEqualTo("project:src/a.c");
+    assertThat(dictionary.key(2)).isEqualTo("project:src/b.c");
+    assertThat(dictionary.id("project:src/b.c")).isEqualTo(2);
+    assertThat(dictionary.id("project:src/c.c")).isEqualTo(-1);
+    assertThat(dictionary.contains("project:src")).isFalse();
+    assertThat(dictionary.contains("project:src/a.c.h")).isFalse();
+    assertThrows(IndexOutOfBoundsException.class, () -> dictionary.key(3));
+  }
+
+  @Test
+  public void many_blocks() throws Exception {
+    List<String> keys = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      keys.add("project:src/dir" + (i % 7) + "/File" + i + ".java");
+    }
+    keys.add("");
+    ComponentDictionary dictionary = ComponentDictionary.of(keys);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    dictionary.write(new DataOutputStream(bytes));
+    ComponentDictionary result = ComponentDictionary.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertThat(result.size()).isEqualTo(keys.size());
+    for (String key : keys) {
+      int id = result.id(key);
+      assertThat(id).isEqualTo(dictionary.id(key));
+      assertThat(result.key(id)).isEqualTo(key);
+    }
+    assertThat(result.contains("project:src/dir0/File1.java")).isFalse();
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DeltaDumpTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void should_replace_unmatched_findings_by_new_ones() throws Exception {
+    File oldDump = temporaryFolder.newFolder();
+    Dump.save(Arrays.asList(
+      new IssueKey("project:A", "squid:S1", 1),
+      new IssueKey("project:A", "squid:S1", 2),
+      new IssueKey("project:A", "squid:S1", 2),
+      new IssueKey("project:B", "squid:S2", 1),
+      new IssueKey("project:C", "squid:S2", 1)), oldDump);
+
+    Map<String, Multiset<IssueKey>> unmatched = new HashMap<>();
+    unmatched.put("project:A", Multiset.create());
+    unmatched.get("project:A").add(new IssueKey("project:A", "squid:S1", 2));
+    List<IssueKey> newIssues = Arrays.asList(
+      new IssueKey("project:A", "squid:S0", 5),
+      new IssueKey("project:B", "squid:S2", 7),
+      new IssueKey("project:B", "squid:S3", 1));
+
+    List<IssueKey> result = new ArrayList<>();
+    DeltaDump.merge(oldDump, ruleKey -> true, componentKey -> !componentKey.equals("project:C"), unmatched, newIssues.iterator()).forEachRemaining(result::add);
+
+    assertThat(result).containsExactly(
+      new IssueKey("project:A", "squid:S0", 5),
+      new IssueKey("project:A", "squid:S1", 1),
+      new IssueKey("project:A", "squid:S1", 2),
+      new IssueKey("project:B", "squid:S2", 1),
+      new IssueKey("project:B", "squid:S2", 7),
+      new IssueKey("project:B", "squid:S3", 1));
+    assertThat(unmatched.get("project:A").size()).isEqualTo(1);
+  }
+
+  @Test
+  public void should_skip_rules_not_part_of_new_dump() throws Exception {
+    File oldDump = temporaryFolder.newFolder();
+    Dump.save(Arrays.asList(
+      new IssueKey("project:A", "squid:S1", 1),
+      new IssueKey("project:A", "squid:S2", 1)), oldDump);
+    List<IssueKey> newIssues = Arrays.asList(new IssueKey("project:A", "squid:S1", 2));
+
+    List<IssueKey> result = new ArrayList<>();
+    DeltaDump.merge(oldDump, "squid:S1"::equals, componentKey -> true, new HashMap<>(), newIssues.iterator()).forEachRemaining(result::add);
+
+    assertThat(result).containsExactly(
+      new IssueKey("project:A", "squid:S1", 1),
+      new IssueKey("project:A", "squid:S1", 2));
+  }
+
+  @Test
+  public void should_merge_with_compact_dump() throws Exception {
+    File oldDump = temporaryFolder.newFolder();
+    List<IssueKey> oldIssues = new ArrayList<>(Arrays.asList(
+      new IssueKey("project:A", "squid:S1", 1),
+      new IssueKey("project:A", "squid:S1", 2),
+      new IssueKey("project:A", "squid:S2", 1),
+      new IssueKey("project:B", "squid:S3", 1),
+      new IssueKey("project:C", "squid:S3", 1)));
+    oldIssues.sort(Dump.ORDER);
+    CompactDump.save(oldIssues.iterator(), oldDump);
+
+    Map<String, Multiset<IssueKey>> unmatched = new HashMap<>();
+    unmatched.put("project:A", Multiset.create());
+    unmatched.get("project:A").add(new IssueKey("project:A", "squid:S1", 2));
+    List<IssueKey> newIssues = Arrays.asList(
+      new IssueKey("project:A", "squid:S0", 5),
+      new IssueKey("project:B", "squid:S3", 7));
+
+    List<IssueKey> result = new ArrayList<>();
+    try (DeltaDump merge = DeltaDump.merge(oldDump, ruleKey -> !ruleKey.equals("squid:S2"), componentKey -> !componentKey.equals("project:C"), unmatched,
+      newIssues.iterator())) {
+      merge.forEachRemaining(result::add);
+    }
+
+    assertThat(result).containsExactly(
+      new IssueKey("project:A", "squid:S0", 5),
+      new IssueKey("project:A", "squid:S1", 1),
+      new IssueKey("project:B", "squid:S3", 1),
+      new IssueKey("project:B", "squid:S3", 7));
+  }
+
+  @Test
+  public void without_previous_dump() {
+    List<IssueKey> newIssues = Arrays.asList(new IssueKey("project:A", "squid:S1", 1));
+    List<IssueKey> result = new ArrayList<>();
+    DeltaDump.merge(new File(temporaryFolder.getRoot(), "missing"), ruleKey -> true, componentKey -> true, new HashMap<>(), newIssues.iterator()).forEachRemaining(result::add);
+    assertThat(result).containsExactly(new IssueKey("project:A", "squid:S1", 1));
+  }
+
+}
@@ -19,17 +19,21 @@ package com.sonarsource.lits;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Collections;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import com.sonarsource.scanner.engine.sensor.test.fixtures.SensorContextTester;
 import com.sonarsource.scanner.engine.sensor.test.fixtures.TestInputFileBuilder;
+import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.sensor.cache.ReadCache;
+import org.sonar.api.batch.sensor.cache.WriteCache;
 import org.sonar.api.notifications.AnalysisWarnings;
 import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.MessageException;
+import org.sonar.scanner.plugin.api.impl.config.MapSettings;
 import org.sonar.scanner.plugin.api.impl.fs.DefaultFileSystem;
 import org.sonar.scanner.plugin.api.impl.fs.FileMetadata;
 import org.sonar.scanner.plugin.api.impl.rule.ActiveRulesBuilder;
@@ -37,8 +41,13 @@ import org.sonar.scanner.plugin.api.impl.rule.NewActiveRule;
 import org.sonar.scanner.plugin.api.impl.sensor.DefaultSensorDescriptor;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -56,6 +65,8 @@ public class DumpPhaseTest {
   @Before
   public void setup() throws IOException {
     checker = mock(IssuesChecker.class);
+    checker.reportLimit = new ReportLimit(0);
+    checker.sample = Sample.ALL;
     activeRules = new ActiveRulesBuilder().build();
     decorator = new DumpPhase(checker, activeRules);
 
@@ -108,17 +119,147 @@ public class DumpPhaseTest {
   }
 
   @Test
-  public void should_report_missing_files() {
-    Map<String, Multiset<IssueKey>> previous = new HashMap<>();
+  public void should_summarize_issues_beyond_limit() {
+    checker.reportLimit = new ReportLimit(1);
     Multiset<IssueKey> issues = Multiset.create();
     issues.add(new IssueKey("", "squid:S00103", null));
-    previous.put("missing", issues);
-    when(checker.getPrevious()).thenReturn(previous);
-    when(checker.getByComponentKey(anyString())).thenReturn(Multiset.<IssueKey>empty());
+    issues.add(new IssueKey("", "squid:S00103", null));
+    issues.add(new IssueKey("", "squid:S00103", null));
+    when(checker.getByComponentKey(anyString())).thenReturn(issues);
 
-    decorator.save();
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of("squid", "S00103"))
+        .build())
+      .build();
+    decorator = new DumpPhase(checker, activeRules);
+
+    decorator.execute(sensorContext);
+
+    assertThat(sensorContext.allIssues()).hasSize(2);
+    verify(checker, times(3)).missingIssue(any(IssueKey.class));
+  }
+
+  @Test
+  public void should_check_only_sampled_components() {
+    checker.sample = new Sample(0.000_001);
+    Multiset<IssueKey> issues = Multiset.create();
+    issues.add(new IssueKey("", "squid:S00103", null));
+    when(checker.getByComponentKey(anyString())).thenReturn(issues);
+
+    decorator.execute(sensorContext);
+
+    assertThat(sensorContext.allIssues()).isEmpty();
+    verify(checker, never()).getByComponentKey(anyString());
+  }
+
+  @Test
+  public void should_reuse_results_of_unchanged_files() throws IOException {
+    DefaultFileSystem fs = new DefaultFileSystem(new File("src/test/resources"));
+    fs.setWorkDir(temporaryFolder.newFolder().toPath());
+    InputFile unchanged = TestInputFileBuilder.create("", "example.cpp").setStatus(InputFile.Status.SAME).build();
+    InputFile changed = TestInputFileBuilder.create("", "changed.cpp").setStatus(InputFile.Status.CHANGED).build();
+    fs.add(unchanged);
+    fs.add(changed);
+    sensorContext.setFileSystem(fs);
+    ReadCache previousCache = mock(ReadCache.class);
+    when(previousCache.contains(anyString())).thenReturn(true);
+    WriteCache nextCache = mock(WriteCache.class);
+    sensorContext.setCacheEnabled(true);
+    sensorContext.setPreviousCache(previousCache);
+    sensorContext.setNextCache(nextCache);
+    when(checker.analyzerFingerprint()).thenReturn("v1");
+    when(checker.baselineDigest()).thenReturn("d1");
+    when(checker.getByComponentKey(anyString())).thenReturn(Multiset.<IssueKey>create());
+
+    decorator.execute(sensorContext);
+
+    verify(checker).carryOver(unchanged.key());
+    verify(checker, never()).carryOver(changed.key());
+    verify(nextCache).copyFromPrevious("lits:v1:d1:" + unchanged.key());
+    verify(nextCache).write(eq("lits:v1:d1:" + changed.key()), any(byte[].class));
+  }
+
+  @Test
+  public void should_compare_unchanged_files_with_findings() throws IOException {
+    DefaultFileSystem fs = new DefaultFileSystem(new File("src/test/resources"));
+    fs.setWorkDir(temporaryFolder.newFolder().toPath());
+    InputFile unchanged = TestInputFileBuilder.create("", "example.cpp").setStatus(InputFile.Status.SAME).build();
+    fs.add(unchanged);
+    sensorContext.setFileSystem(fs);
+    ReadCache previousCache = mock(ReadCache.class);
+    when(previousCache.contains(anyString())).thenReturn(true);
+    sensorContext.setCacheEnabled(true);
+    sensorContext.setPreviousCache(previousCache);
+    sensorContext.setNextCache(mock(WriteCache.class));
+    when(checker.analyzerFingerprint()).thenReturn("v1");
+    when(checker.baselineDigest()).thenReturn("d1");
+    // analyzer reported only the first of two previous findings
+    when(checker.hasFindings(unchanged.key())).thenReturn(true);
+    Multiset<IssueKey> remaining = Multiset.create();
+    remaining.add(new IssueKey(unchanged.key(), "squid:S00104", null));
+    when(checker.getByComponentKey(anyString())).thenReturn(remaining);
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of("squid", "S00104"))
+        .build())
+      .build();
+    decorator = new DumpPhase(checker, activeRules);
+
+    decorator.execute(sensorContext);
+
+    verify(checker, never()).carryOver(anyString());
+    verify(checker).missingIssue(new IssueKey(unchanged.key(), "squid:S00104", null));
+    assertThat(sensorContext.allIssues()).hasSize(1);
+    assertThat(sensorContext.allIssues().iterator().next().primaryLocation().message()).isEqualTo("Missing");
+  }
+
+  @Test
+  public void should_not_reuse_results_without_fingerprint() {
+    sensorContext.setCacheEnabled(true);
+    when(checker.getByComponentKey(anyString())).thenReturn(Multiset.<IssueKey>create());
+
+    decorator.execute(sensorContext);
+
+    verify(checker, never()).carryOver(anyString());
+  }
+
+  @Test
+  public void should_compare_with_other_baselines_without_reporting() {
+    IssuesChecker other = mock(IssuesChecker.class);
+    Multiset<IssueKey> issues = Multiset.create();
+    issues.add(new IssueKey("", "squid:S00103", null));
+    when(other.getByComponentKey(anyString())).thenReturn(issues);
+    when(checker.getByComponentKey(anyString())).thenReturn(Multiset.<IssueKey>create());
+    when(checker.others()).thenReturn(Collections.singletonList(other));
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of("squid", "S00103"))
+        .build())
+      .build();
+    decorator = new DumpPhase(checker, activeRules);
+
+    decorator.execute(sensorContext);
+
+    assertThat(sensorContext.allIssues()).isEmpty();
+    verify(other).missingIssue(new IssueKey("", "squid:S00103", null));
+    verify(other).save();
+    verify(checker).save();
+  }
+
+  @Test
+  public void should_report_not_analyzed_components() throws IOException {
+    MapSettings settings = new MapSettings();
+    settings.setProperty(LITSPlugin.OLD_DUMP_PROPERTY, new File("src/test/resources").getAbsolutePath());
+    settings.setProperty(LITSPlugin.NEW_DUMP_PROPERTY, new File(temporaryFolder.newFolder(), "dump").getAbsolutePath());
+    settings.setProperty(LITSPlugin.DIFFERENCES_PROPERTY, temporaryFolder.newFile().getAbsolutePath());
+    // all components are loaded, so that components which were not analyzed remain in previous findings
+    settings.setProperty(LITSPlugin.PREFETCH_PROPERTY, "true");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, new DefaultFileSystem(new File("src/test/resources")));
+    decorator = new DumpPhase(checker, activeRules);
 
-    verify(checker).missingResource("missing");
+    MessageException e = assertThrows(MessageException.class, () -> decorator.save());
+    assertThat(e.getMessage()).isEqualTo("Files listed in Expected directory were not analyzed: project:src/Example.java");
   }
 
 }
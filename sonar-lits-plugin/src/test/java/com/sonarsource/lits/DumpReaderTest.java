@@ -0,0 +1,91 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+public class DumpReaderTest {
+
+  @Test
+  public void read() throws Exception {
+    assertThat(read("{\n\"a\": [\n1,\n2\n],\n'b': [],\n\"c\\\"\\u00e9\": [-3]\n}\n")).containsExactly("a", 1, 2, "b", "c\"\u00e9", -3);
+    assertThat(read(" { } ")).isEmpty();
+  }
+
+  @Test
+  public void skip_lines_of_component() throws Exception {
+    List<Object> result = new ArrayList<>();
+    DumpReader.read(new StringReader("{'a': [1], 'b': [2]}"), "file", new DumpReader.Handler() {
+      @Override
+      public boolean component(String componentKey) {
+        result.add(componentKey);
+        return !"a".equals(componentKey);
+      }
+
+      @Override
+      public void line(int line) {
+        result.add(line);
+      }
+    });
+    assertThat(result).containsExactly("a", "b", 2);
+  }
+
+  @Test
+  public void invalid() {
+    assertInvalid("", "Invalid dump file at 1:1: expected '{', found end of input");
+    assertInvalid("{'a': [1,]}", "Invalid dump file at 1:10: expected number, found ']'");
+    assertInvalid("{'a': [01]}", "Invalid dump file at 1:9: expected ']', found '1'");
+    assertInvalid("{'a': [1.5]}", "Invalid dump file at 1:9: expected ']', found '.'");
+    assertInvalid("{'a': [2147483648]}", "Invalid dump file at 1:18: number out of range, found ']'");
+    assertInvalid("{'a': [1], 'a': [2]}", "Invalid dump file at 1:12: duplicate key 'a'");
+    assertInvalid("{a: [1]}", "Invalid dump file at 1:2: expected string, found 'a'");
+    assertInvalid("{'a: [1]}", "Invalid dump file at 1:10: unterminated string, found end of input");
+    assertInvalid("{'\\x': [1]}", "Invalid dump file at 1:4: invalid escape sequence, found 'x'");
+    assertInvalid("{\n'a': [1]\n}\n}", "Invalid dump file at 4:1: expected end of input, found '}'");
+  }
+
+  private static void assertInvalid(String content, String message) {
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> read(content));
+    assertThat(e.getMessage()).isEqualTo(message);
+  }
+
+  private static List<Object> read(String content) throws IOException {
+    List<Object> result = new ArrayList<>();
+    DumpReader.read(new StringReader(content), "file", new DumpReader.Handler() {
+      @Override
+      public boolean component(String componentKey) {
+        result.add(componentKey);
+        return true;
+      }
+
+      @Override
+      public void line(int line) {
+        result.add(line);
+      }
+    });
+    return result;
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DumpSpillTest {
+
+  @Test
+  public void merge_should_return_spilled_and_remaining_issues_in_order() {
+    DumpSpill spill = DumpSpill.create();
+    List<IssueKey> issues = new ArrayList<>();
+    issues.add(new IssueKey("componentKey2", "repoKey:ruleKey1", 1));
+    issues.add(new IssueKey("componentKey1", "repoKey:ruleKey2", 2));
+    spill.write(issues);
+    assertThat(issues).isEmpty();
+    issues.add(new IssueKey("componentKey1", "repoKey:ruleKey2", 1));
+    issues.add(new IssueKey("componentKey1", "repoKey:ruleKey1", 1));
+    spill.write(issues);
+    issues.add(new IssueKey("componentKey1", "repoKey:ruleKey2", 2));
+    assertThat(spill.runs()).isEqualTo(2);
+
+    List<IssueKey> merged = new ArrayList<>();
+    try (DumpSpill.Merge merge = spill.merge(issues)) {
+      merge.forEachRemaining(merged::add);
+    }
+    spill.close();
+
+    assertThat(merged).containsExactly(
+      new IssueKey("componentKey1", "repoKey:ruleKey1", 1),
+      new IssueKey("componentKey2", "repoKey:ruleKey1", 1),
+      new IssueKey("componentKey1", "repoKey:ruleKey2", 1),
+      new IssueKey("componentKey1", "repoKey:ruleKey2", 2),
+      new IssueKey("componentKey1", "repoKey:ruleKey2", 2));
+  }
+
+  @Test
+  public void close_should_release_abandoned_merge() {
+    DumpSpill spill = DumpSpill.create();
+    List<IssueKey> issues = new ArrayList<>();
+    issues.add(new IssueKey("componentKey", "repoKey:ruleKey", 1));
+    issues.add(new IssueKey("componentKey", "repoKey:ruleKey", 2));
+    spill.write(issues);
+    DumpSpill.Merge merge = spill.merge(issues);
+    assertThat(merge.next()).isEqualTo(new IssueKey("componentKey", "repoKey:ruleKey", 1));
+
+    spill.close();
+
+    assertThat(merge.hasNext()).isFalse();
+  }
+
+}
@@ -50,7 +50,7 @@ public class DumpTest {
 
     Dump.save(issues, dir);
 
-    assertThat(dir.listFiles()).hasSize(3);
+    assertThat(dir.listFiles()).hasSize(4);
     String expected = new StringBuilder()
       .append("{\n")
       .append("\"componentKey1\": [\n")
@@ -88,6 +88,105 @@ public class DumpTest {
     assertThat(dump.get("componentKey2").size()).isEqualTo(1);
   }
 
+  @Test
+  public void save_should_write_manifest() throws Exception {
+    File dir = new File(temporaryFolder.newFolder(), "dump");
+    List<IssueKey> issues = new ArrayList<>();
+    issues.add(new IssueKey("componentKey1", "repoKey:ruleKey1", 1));
+    issues.add(new IssueKey("componentKey2", "repoKey:ruleKey1", 1));
+    issues.add(new IssueKey("componentKey1", "repoKey:ruleKey2", 1));
+    Dump.save(issues, dir);
+
+    Manifest manifest = Manifest.read(dir);
+    assertThat(manifest.size()).isEqualTo(2);
+    assertThat(manifest.get("repoKey-ruleKey1.json").issues).isEqualTo(2);
+    assertThat(manifest.get("repoKey-ruleKey2.json").issues).isEqualTo(1);
+    byte[] content = Files.readAllBytes(new File(dir, "repoKey-ruleKey1.json").toPath());
+    assertThat(manifest.get("repoKey-ruleKey1.json").hash).isEqualTo(Manifest.toHex(Manifest.newDigest().digest(content)));
+    List<String> lines = Files.readAllLines(new File(dir, Manifest.FILE_NAME).toPath(), StandardCharsets.UTF_8);
+    assertThat(lines.get(1)).isEqualTo(manifest.get("repoKey-ruleKey2.json").hash + " 1 repoKey-ruleKey2.json");
+  }
+
+  @Test
+  public void save_should_not_depend_on_order_of_issues() throws Exception {
+    List<IssueKey> issues = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      issues.add(new IssueKey("componentKey" + (i * 7 % 5), "repoKey:ruleKey" + (i * 3 % 4), i * 11 % 13));
+    }
+    File unsortedDir = new File(temporaryFolder.newFolder(), "dump");
+    Dump.save(new ArrayList<>(issues), unsortedDir);
+    issues.sort(Dump.ORDER);
+    File sortedDir = new File(temporaryFolder.newFolder(), "dump");
+    Dump.save(issues.iterator(), sortedDir);
+
+    assertThat(unsortedDir.list()).hasSize(5);
+    for (String fileName : unsortedDir.list()) {
+      assertThat(Files.readAllBytes(new File(unsortedDir, fileName).toPath()))
+        .isEqualTo(Files.readAllBytes(new File(sortedDir, fileName).toPath()));
+    }
+  }
+
+  @Test
+  public void load_should_verify_manifest() throws Exception {
+    File dir = new File(temporaryFolder.newFolder(), "dump");
+    List<IssueKey> issues = new ArrayList<>();
+    issues.add(new IssueKey("componentKey1", "repoKey:ruleKey1", 1));
+    Dump.save(issues, dir);
+    Manifest manifest = Manifest.read(dir);
+
+    HeapBaseline baseline = new HeapBaseline();
+    Dump.load(dir, baseline, componentKey -> true, componentKey -> {
+    }, manifest);
+    assertThat(baseline.remaining().get("componentKey1").size()).isEqualTo(1);
+
+    Files.write(new File(dir, "repoKey-ruleKey1.json").toPath(), "{'componentKey1': [2]}".getBytes(StandardCharsets.UTF_8));
+    IllegalStateException e = assertThrows(IllegalStateException.class, () ->
+      Dump.load(dir, new HeapBaseline(), componentKey -> true, componentKey -> {
+      }, manifest));
+    assertThat(e.getMessage()).startsWith("Checksum mismatch: ");
+  }
+
+  @Test
+  public void load_should_fail_when_file_listed_in_manifest_is_missing() throws Exception {
+    File dir = new File(temporaryFolder.newFolder(), "dump");
+    List<IssueKey> issues = new ArrayList<>();
+    issues.add(new IssueKey("componentKey1", "repoKey:ruleKey1", 1));
+    issues.add(new IssueKey("componentKey1", "repoKey:ruleKey2", 1));
+    Dump.save(issues, dir);
+    Manifest manifest = Manifest.read(dir);
+    Files.delete(new File(dir, "repoKey-ruleKey2.json").toPath());
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () ->
+      Dump.load(dir, new HeapBaseline(), componentKey -> true, componentKey -> {
+      }, manifest));
+    assertThat(e.getMessage()).startsWith("File listed in manifest is missing: ").endsWith("repoKey-ruleKey2.json");
+  }
+
+  @Test
+  public void read_should_fail_on_invalid_number_of_issues_in_manifest() throws Exception {
+    File dir = temporaryFolder.newFolder();
+    Files.write(new File(dir, Manifest.FILE_NAME).toPath(), "hash x repoKey-ruleKey1.json".getBytes(StandardCharsets.UTF_8));
+
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> Manifest.read(dir));
+    assertThat(e.getMessage()).startsWith("Invalid line in ").endsWith(": hash x repoKey-ruleKey1.json");
+  }
+
+  @Test
+  public void load_should_skip_filtered_components() throws Exception {
+    File dir = new File(temporaryFolder.newFolder(), "dump");
+    List<IssueKey> issues = new ArrayList<>();
+    issues.add(new IssueKey("componentKey1", "repoKey:ruleKey1", 1));
+    issues.add(new IssueKey("componentKey2", "repoKey:ruleKey1", 1));
+    issues.add(new IssueKey("componentKey2", "repoKey:ruleKey2", 1));
+    Dump.save(issues, dir);
+
+    List<String> skipped = new ArrayList<>();
+    Map<String, Multiset<IssueKey>> dump = Dump.load(dir, "componentKey1"::equals, skipped::add);
+
+    assertThat(dump.keySet()).containsOnly("componentKey1");
+    assertThat(skipped).containsExactly("componentKey2", "componentKey2");
+  }
+
   @Test
   public void unable_to_load() throws Exception {
     File dir = temporaryFolder.newFolder();
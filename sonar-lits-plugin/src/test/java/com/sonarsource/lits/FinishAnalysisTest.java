@@ -0,0 +1,115 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.scan.issue.filter.IssueFilter;
+import org.sonar.api.utils.MessageException;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+public class FinishAnalysisTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void finish_filtered() throws Exception {
+    File dir = temporaryFolder.newFolder();
+    Snapshot snapshot = filteredSnapshot(dir);
+    File snapshotFile = new File(dir, "snapshot");
+    snapshot.write(snapshotFile);
+
+    FinishAnalysis.finish(snapshotFile);
+
+    assertThat(new String(Files.readAllBytes(snapshot.differencesFile.toPath()), StandardCharsets.UTF_8)).isEqualTo("Issues differences: 2");
+    assertThat(Dump.load(snapshot.newDumpFile).get("componentKey").size()).isEqualTo(2);
+    assertThat(snapshotFile).doesNotExist();
+  }
+
+  @Test
+  public void finish_with_documented_classpath() throws Exception {
+    File dir = temporaryFolder.newFolder();
+    Snapshot snapshot = filteredSnapshot(dir);
+    File snapshotFile = new File(dir, "snapshot");
+    snapshot.write(snapshotFile);
+    // plugin classes, plugin API and SLF4J, but nothing else of test classpath
+    String classpath = String.join(File.pathSeparator, location(FinishAnalysis.class), location(IssueFilter.class), location(org.slf4j.Logger.class));
+
+    Process process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(), "-cp", classpath,
+      FinishAnalysis.class.getName(), snapshotFile.getPath())
+      .redirectErrorStream(true)
+      .redirectOutput(new File(dir, "output"))
+      .start();
+
+    assertThat(process.waitFor()).as(new String(Files.readAllBytes(new File(dir, "output").toPath()), StandardCharsets.UTF_8)).isEqualTo(0);
+    assertThat(new String(Files.readAllBytes(snapshot.differencesFile.toPath()), StandardCharsets.UTF_8)).isEqualTo("Issues differences: 2");
+    assertThat(snapshotFile).doesNotExist();
+  }
+
+  @Test
+  public void finish_missing() throws Exception {
+    File dir = temporaryFolder.newFolder();
+    Snapshot snapshot = new Snapshot();
+    snapshot.phase = Snapshot.MISSING;
+    snapshot.newDumpFile = new File(dir, "dump");
+    snapshot.differencesFile = new File(dir, "differences");
+    snapshot.different = true;
+    snapshot.missingResources = Collections.singletonList("missing");
+    File snapshotFile = new File(dir, "snapshot");
+    snapshot.write(snapshotFile);
+
+    MessageException e = assertThrows(MessageException.class, () -> FinishAnalysis.finish(snapshotFile));
+    assertThat(e.getMessage()).isEqualTo("Files listed in Expected directory were not analyzed: missing");
+    assertThat(snapshotFile).doesNotExist();
+  }
+
+  private static String location(Class<?> c) throws URISyntaxException {
+    return new File(c.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+  }
+
+  private static Snapshot filteredSnapshot(File dir) {
+    Snapshot snapshot = new Snapshot();
+    snapshot.phase = Snapshot.FILTERED;
+    snapshot.newDumpFile = new File(dir, "dump");
+    snapshot.differencesFile = new File(dir, "differences");
+    snapshot.different = true;
+    snapshot.differences = 1;
+    snapshot.activeRuleKeys = Collections.singletonList("repoKey:ruleKey");
+    snapshot.analyzedComponentKeys = Collections.singletonList("componentKey");
+    Map<String, Multiset<IssueKey>> previous = new HashMap<>();
+    Multiset<IssueKey> componentIssues = Multiset.create();
+    componentIssues.add(new IssueKey("componentKey", "repoKey:ruleKey", 2));
+    previous.put("componentKey", componentIssues);
+    snapshot.previous = previous;
+    snapshot.issues = Arrays.asList(new IssueKey("componentKey", "repoKey:ruleKey", 1), new IssueKey("componentKey", "repoKey:ruleKey", 3));
+    return snapshot;
+  }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class HistogramTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void write() throws Exception {
+    Histogram histogram = new Histogram();
+    assertThat(histogram.isEmpty()).isTrue();
+    histogram.addNew(new IssueKey("componentKey1", "repoKey:ruleKey1", 1));
+    histogram.addNew(new IssueKey("componentKey1", "repoKey:ruleKey2", 1));
+    histogram.addMissing(new IssueKey("componentKey2", "repoKey:ruleKey2", 1));
+    histogram.addMissing(new IssueKey("component,Key3", "repoKey:ruleKey2", 1));
+    assertThat(histogram.isEmpty()).isFalse();
+
+    File file = temporaryFolder.newFile();
+    histogram.write(file);
+
+    assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)).isEqualTo("kind,key,new,missing\n"
+      + "rule,repoKey:ruleKey2,1,2\n"
+      + "rule,repoKey:ruleKey1,1,0\n"
+      + "component,componentKey1,2,0\n"
+      + "component,\"component,Key3\",0,1\n"
+      + "component,componentKey2,0,1\n");
+  }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class IntListTest {
+
+  @Test
+  public void test() {
+    IntList list = new IntList(1);
+    list.add(3);
+    list.add(1);
+    list.add(2);
+    assertThat(list.size()).isEqualTo(3);
+    assertThat(list.get(0)).isEqualTo(3);
+
+    list.sort();
+    assertThat(list.toArray()).isEqualTo(new int[] {1, 2, 3});
+
+    list.clear();
+    assertThat(list.size()).isEqualTo(0);
+    assertThat(list.toArray()).isEmpty();
+  }
+
+}
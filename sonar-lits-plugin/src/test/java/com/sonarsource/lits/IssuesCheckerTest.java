@@ -20,10 +20,13 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import com.sonarsource.scanner.engine.sensor.test.fixtures.TestInputFileBuilder;
 import org.sonar.api.batch.rule.ActiveRules;
 import org.sonar.api.config.Configuration;
 import org.sonar.api.rule.RuleKey;
@@ -33,6 +36,7 @@ import org.sonar.api.scan.issue.filter.IssueFilterChain;
 import org.sonar.api.testfixtures.log.LogTester;
 import org.sonar.api.utils.MessageException;
 import org.sonar.scanner.plugin.api.impl.config.MapSettings;
+import org.sonar.scanner.plugin.api.impl.fs.DefaultFileSystem;
 import org.sonar.scanner.plugin.api.impl.rule.ActiveRulesBuilder;
 import org.sonar.scanner.plugin.api.impl.rule.NewActiveRule;
 
@@ -51,6 +55,7 @@ public class IssuesCheckerTest {
   public LogTester logTester = new LogTester();
 
   private ActiveRules activeRules;
+  private DefaultFileSystem fileSystem;
   private IssuesChecker checker;
   private File output;
   private File assertion;
@@ -63,14 +68,16 @@ public class IssuesCheckerTest {
     assertion = new File(temporaryFolder.newFolder(), "assertion");
     Configuration settings = newCorrectSettings().asConfig();
     activeRules = new ActiveRulesBuilder().build();
-    checker = new IssuesChecker(settings, activeRules);
+    fileSystem = new DefaultFileSystem(new File("src/test/resources"));
+    fileSystem.add(TestInputFileBuilder.create("project", "src/Example.java").build());
+    checker = new IssuesChecker(settings, activeRules, fileSystem);
   }
 
   @Test
   public void path_must_be_specified() {
     Configuration settings = new MapSettings().asConfig();
     MessageException e = assertThrows(MessageException.class, () ->
-      new IssuesChecker(settings, activeRules));
+      new IssuesChecker(settings, activeRules, fileSystem));
     assertEquals("Missing property 'sonar.lits.dump.old'", e.getMessage());
   }
 
@@ -79,7 +86,7 @@ public class IssuesCheckerTest {
     MapSettings settings = new MapSettings();
     settings.setProperty(LITSPlugin.OLD_DUMP_PROPERTY, "target/dump.json");
     MessageException e = assertThrows(MessageException.class, () ->
-        new IssuesChecker(settings.asConfig(), activeRules));
+        new IssuesChecker(settings.asConfig(), activeRules, fileSystem));
     assertEquals("Path must be absolute - check property 'sonar.lits.dump.old'", e.getMessage());
   }
 
@@ -88,7 +95,7 @@ public class IssuesCheckerTest {
     MapSettings settings = newCorrectSettings();
     settings.setProperty(LITSPlugin.DIFFERENCES_PROPERTY, (String) null);
     MessageException e = assertThrows(MessageException.class, () ->
-      new IssuesChecker(settings.asConfig(), activeRules));
+      new IssuesChecker(settings.asConfig(), activeRules, fileSystem));
     assertEquals("Missing property 'sonar.lits.differences'", e.getMessage());
   }
 
@@ -103,7 +110,7 @@ public class IssuesCheckerTest {
       .build();
 
     MessageException e = assertThrows(MessageException.class, () ->
-      new IssuesChecker(settings, activeRules));
+      new IssuesChecker(settings, activeRules, fileSystem));
     assertEquals("Rule 'repositoryKey:ruleKey' must be declared with severity INFO", e.getMessage());
   }
 
@@ -124,6 +131,25 @@ public class IssuesCheckerTest {
     checker.save();
 
     assertThat(output).exists();
+    assertThat(new File(assertion.getPath() + IssuesChecker.HISTOGRAM_SUFFIX)).exists();
+  }
+
+  @Test
+  public void should_only_count_differences_when_budget_exceeded() throws Exception {
+    MapSettings settings = newCorrectSettings();
+    // used heap is not under control of test
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem, new Budget(1, 0, () -> 2L * 1024 * 1024));
+    FilterableIssue issue = mock(FilterableIssue.class);
+    when(issue.componentKey()).thenReturn("");
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+
+    assertThat(checker.accept(issue, chainReturnTrue)).isFalse();
+    assertThat(checker.degraded).isTrue();
+    checker.save();
+
+    assertThat(new File(output, "squid-S00103.json")).exists();
+    assertThat(new String(Files.readAllBytes(assertion.toPath()), StandardCharsets.UTF_8))
+      .isEqualTo("Issues differences: 1\nDegraded mode: memory budget of 1 MB exceeded");
   }
 
   @Test
@@ -162,6 +188,417 @@ public class IssuesCheckerTest {
     assertThat(checker.accept(issue, chainReturnTrue)).isFalse();
   }
 
+  @Test
+  public void should_hide_old_issues_with_every_store() {
+    for (String store : new String[] {"heap", "offheap", "sorted", "bitmap"}) {
+      MapSettings settings = newCorrectSettings();
+      settings.setProperty(LITSPlugin.BASELINE_STORE_PROPERTY, store);
+      checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+      FilterableIssue issue = mock(FilterableIssue.class);
+      when(issue.componentKey()).thenReturn("project:src/Example.java");
+      when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+      when(issue.line()).thenReturn(1);
+      when(issue.severity()).thenReturn("INFO");
+
+      assertThat(checker.accept(issue, chainReturnTrue)).as(store).isFalse();
+      assertThat(checker.accept(issue, chainReturnTrue)).as(store).isTrue();
+      assertThat(checker.getByComponentKey("project:src/Example.java").size()).as(store).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void lazy_loading_should_load_rule_on_demand() {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.LAZY_LOADING_PROPERTY, "true");
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of("squid", "S00103"))
+        .setSeverity(RulePriority.INFO.toString())
+        .build())
+      .build();
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    FilterableIssue issue = mock(FilterableIssue.class);
+    when(issue.componentKey()).thenReturn("project:src/Example.java");
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+    when(issue.line()).thenReturn(1);
+    when(issue.severity()).thenReturn("INFO");
+
+    assertThat(checker.accept(issue, chainReturnTrue)).isFalse();
+    assertThat(checker.getByComponentKey("project:src/Example.java").size()).isEqualTo(1);
+  }
+
+  @Test
+  public void lazy_loading_should_report_inactive_rules_with_issues_of_analyzed_components() {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.LAZY_LOADING_PROPERTY, "true");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+
+    assertThat(checker.getPrevious()).isEmpty();
+    MessageException e = assertThrows(MessageException.class, () ->
+      checker.save());
+    assertThat(e.getMessage()).isEqualTo("Inactive rules: squid:S00103");
+  }
+
+  @Test
+  public void lazy_loading_should_not_report_inactive_rules_without_issues_of_analyzed_components() throws Exception {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.LAZY_LOADING_PROPERTY, "true");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, new DefaultFileSystem(new File("src/test/resources")));
+
+    assertThat(checker.getPrevious()).isEmpty();
+    MessageException e = assertThrows(MessageException.class, () ->
+      checker.save());
+    assertThat(e.getMessage()).isEqualTo("Files listed in Expected directory were not analyzed: project:src/Example.java");
+    assertThat(new String(Files.readAllBytes(assertion.toPath()), StandardCharsets.UTF_8)).doesNotContain("Inactive rules");
+  }
+
+  @Test
+  public void prefetch_with_lazy_loading_should_report_inactive_rules_with_issues_of_analyzed_components() {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.LAZY_LOADING_PROPERTY, "true");
+    settings.setProperty(LITSPlugin.PREFETCH_PROPERTY, "true");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+
+    assertThat(checker.getPrevious()).isEmpty();
+    MessageException e = assertThrows(MessageException.class, () ->
+      checker.save());
+    assertThat(e.getMessage()).isEqualTo("Inactive rules: squid:S00103");
+  }
+
+  @Test
+  public void prefetch_with_lazy_loading_should_not_report_inactive_rules_without_issues_of_analyzed_components() throws Exception {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.LAZY_LOADING_PROPERTY, "true");
+    settings.setProperty(LITSPlugin.PREFETCH_PROPERTY, "true");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, new DefaultFileSystem(new File("src/test/resources")));
+
+    assertThat(checker.getPrevious()).isEmpty();
+    MessageException e = assertThrows(MessageException.class, () ->
+      checker.save());
+    assertThat(e.getMessage()).isEqualTo("Files listed in Expected directory were not analyzed: project:src/Example.java");
+    assertThat(new String(Files.readAllBytes(assertion.toPath()), StandardCharsets.UTF_8)).doesNotContain("Inactive rules");
+  }
+
+  @Test
+  public void should_load_previous_issues_in_background() {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.PREFETCH_PROPERTY, "true");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    FilterableIssue issue = mock(FilterableIssue.class);
+    when(issue.componentKey()).thenReturn("project:src/Example.java");
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+    when(issue.line()).thenReturn(1);
+    when(issue.severity()).thenReturn("INFO");
+
+    assertThat(checker.accept(issue, chainReturnTrue)).isFalse();
+    assertThat(logTester.logs()).hasSize(2);
+    assertThat(logTester.logs().get(1)).startsWith("Loaded ").contains(" in background in ").contains(", analysis waited ");
+  }
+
+  @Test
+  public void should_report_moved_issues() throws Exception {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.LINE_WINDOW_PROPERTY, "1");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    FilterableIssue issue = mock(FilterableIssue.class);
+    when(issue.componentKey()).thenReturn("project:src/Example.java");
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+    when(issue.line()).thenReturn(3, 2);
+    when(issue.severity()).thenReturn("INFO");
+
+    // previous issues are on lines 1 and 3
+    assertThat(checker.accept(issue, chainReturnTrue)).isFalse();
+    assertThat(checker.accept(issue, chainReturnTrue)).isFalse();
+    assertThat(checker.matchMoved("project:src/Example.java")).isEmpty();
+    assertThat(checker.getByComponentKey("project:src/Example.java").isEmpty()).isTrue();
+    checker.save();
+
+    assertThat(output).exists();
+    assertThat(new String(Files.readAllBytes(assertion.toPath()), StandardCharsets.UTF_8)).isEqualTo("Issues differences: 0\nMoved issues: 1");
+  }
+
+  @Test
+  public void should_reuse_output_directory() throws Exception {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.OUTPUT_PROPERTY, "reuse");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    assertThat(output.mkdirs()).isTrue();
+    assertThat(new File(output, "squid-S00103.json").createNewFile()).isTrue();
+    assertThat(new File(output, "squid-Stale.json").createNewFile()).isTrue();
+    assertThat(new File(output, "other.txt").createNewFile()).isTrue();
+
+    FilterableIssue issue = mock(FilterableIssue.class);
+    when(issue.componentKey()).thenReturn("");
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+    assertThat(checker.accept(issue, chainReturnTrue)).isTrue();
+    checker.save();
+
+    assertThat(output.list()).containsOnly("squid-S00103.json", Manifest.FILE_NAME, "other.txt");
+    assertThat(new File(output, "squid-S00103.json").length()).isGreaterThan(0);
+  }
+
+  @Test
+  public void should_write_and_read_compact_dump() throws Exception {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.FORMAT_PROPERTY, "compact");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    FilterableIssue issue = mock(FilterableIssue.class);
+    when(issue.componentKey()).thenReturn("project:src/Example.java");
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+    when(issue.line()).thenReturn(42);
+    when(issue.severity()).thenReturn("INFO");
+    assertThat(checker.accept(issue, chainReturnTrue)).isTrue();
+    checker.save();
+    assertThat(output.list()).containsOnly(CompactDump.FILE_NAME, Manifest.FILE_NAME);
+
+    settings.setProperty(LITSPlugin.OLD_DUMP_PROPERTY, output.getAbsolutePath());
+    settings.setProperty(LITSPlugin.NEW_DUMP_PROPERTY, new File(temporaryFolder.newFolder(), "dump").getAbsolutePath());
+    settings.setProperty(LITSPlugin.VERIFY_PROPERTY, "true");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    assertThat(checker.accept(issue, chainReturnTrue)).isFalse();
+    assertThat(checker.getByComponentKey("project:src/Example.java").size()).isEqualTo(0);
+  }
+
+  @Test
+  public void should_not_report_new_issues_beyond_limit() {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.REPORT_LIMIT_PROPERTY, "1");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    FilterableIssue issue = mock(FilterableIssue.class);
+    when(issue.componentKey()).thenReturn("project:src/Example.java");
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+    when(issue.line()).thenReturn(42, 43);
+    when(issue.severity()).thenReturn("INFO");
+
+    assertThat(checker.accept(issue, chainReturnTrue)).isTrue();
+    assertThat(checker.accept(issue, chainReturnTrue)).isFalse();
+    assertThat(checker.differences).isEqualTo(2);
+    assertThat(checker.reportLimit.remove("project:src/Example.java").get("squid:S00103").newLines.toArray()).isEqualTo(new int[] {43});
+  }
+
+  @Test
+  public void should_compare_only_sampled_components() throws Exception {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.SAMPLE_PROPERTY, "0.000001");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    FilterableIssue issue = mock(FilterableIssue.class);
+    when(issue.componentKey()).thenReturn("project:src/Example.java");
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+    when(issue.line()).thenReturn(42);
+    when(issue.severity()).thenReturn("INFO");
+
+    assertThat(checker.accept(issue, chainReturnTrue)).isFalse();
+    assertThat(checker.getPrevious()).isEmpty();
+    checker.reportNotAnalyzedComponents();
+    checker.save();
+    assertThat(new String(Files.readAllBytes(assertion.toPath()), StandardCharsets.UTF_8)).isEqualTo("Sample rate: 0.000001");
+  }
+
+  @Test
+  public void should_compare_only_selected_rules() throws Exception {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.RULES_PROPERTY, "cpp:*");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    FilterableIssue issue = mock(FilterableIssue.class);
+    when(issue.componentKey()).thenReturn("project:src/Example.java");
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+    when(issue.line()).thenReturn(42);
+    when(issue.severity()).thenReturn("INFO");
+
+    assertThat(checker.accept(issue, chainReturnTrue)).isFalse();
+    assertThat(checker.getByComponentKey("project:src/Example.java").isEmpty()).isTrue();
+    checker.reportNotAnalyzedComponents();
+    checker.save();
+    assertThat(new String(Files.readAllBytes(assertion.toPath()), StandardCharsets.UTF_8)).isEqualTo("Selected rules: cpp:*");
+  }
+
+  @Test
+  public void sample_must_be_supported() {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.SAMPLE_PROPERTY, "2");
+    MessageException e = assertThrows(MessageException.class, () ->
+      new IssuesChecker(settings.asConfig(), activeRules, fileSystem));
+    assertEquals("Unsupported value '2.0' of property 'sonar.lits.sample'", e.getMessage());
+  }
+
+  @Test
+  public void should_carry_over_previous_issues() {
+    checker.carryOver("project:src/Example.java");
+    assertThat(checker.getByComponentKey("project:src/Example.java").isEmpty()).isTrue();
+    assertThat(checker.hasDifferences("project:src/Example.java")).isFalse();
+    checker.different = true;
+    checker.save();
+    assertThat(Dump.load(output).get("project:src/Example.java").isEmpty()).isFalse();
+  }
+
+  @Test
+  public void should_remember_components_with_findings() {
+    FilterableIssue issue = mock(FilterableIssue.class);
+    when(issue.componentKey()).thenReturn("project:src/Example.java");
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+    when(issue.line()).thenReturn(1);
+    when(issue.severity()).thenReturn("INFO");
+
+    assertThat(checker.hasFindings("project:src/Example.java")).isFalse();
+    checker.accept(issue, chainReturnTrue);
+    assertThat(checker.hasFindings("project:src/Example.java")).isTrue();
+    assertThat(checker.hasFindings("project:src/Other.java")).isFalse();
+  }
+
+  @Test
+  public void should_reconstruct_new_dump_from_previous_one() {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.DELTA_PROPERTY, "true");
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of("squid", "S00103"))
+        .setSeverity(RulePriority.INFO.toString())
+        .build())
+      .build();
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    FilterableIssue issue = mock(FilterableIssue.class);
+    when(issue.componentKey()).thenReturn("project:src/Example.java");
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+    when(issue.line()).thenReturn(1, 42);
+    when(issue.severity()).thenReturn("INFO");
+
+    assertThat(checker.accept(issue, chainReturnTrue)).isFalse();
+    assertThat(checker.accept(issue, chainReturnTrue)).isTrue();
+    checker.save();
+
+    Multiset<IssueKey> issues = Dump.load(output).get("project:src/Example.java");
+    assertThat(issues.size()).isEqualTo(2);
+    assertThat(issues.contains(new IssueKey("project:src/Example.java", "squid:S00103", 1))).isTrue();
+    assertThat(issues.contains(new IssueKey("project:src/Example.java", "squid:S00103", 42))).isTrue();
+  }
+
+  @Test
+  public void delta_with_lazy_loading_should_save_the_same_dump_as_full_save() throws Exception {
+    File oldDump = temporaryFolder.newFolder();
+    Dump.save(Arrays.asList(
+      new IssueKey("project:src/Example.java", "squid:S00103", 1),
+      new IssueKey("project:src/Example.java", "squid:S00103", 3),
+      new IssueKey("project:src/Example.java", "squid:S00104", 1)), oldDump);
+    // findings of squid:S00104 are neither loaded nor matched, since this rule is not active
+    activeRules = new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder()
+        .setRuleKey(RuleKey.of("squid", "S00103"))
+        .setSeverity(RulePriority.INFO.toString())
+        .build())
+      .build();
+
+    Map<String, Multiset<IssueKey>> full = analyze(oldDump, false);
+    Map<String, Multiset<IssueKey>> delta = analyze(oldDump, true);
+
+    assertThat(delta.keySet()).isEqualTo(full.keySet());
+    Multiset<IssueKey> issues = delta.get("project:src/Example.java");
+    assertThat(issues.size()).isEqualTo(full.get("project:src/Example.java").size());
+    assertThat(issues.size()).isEqualTo(2);
+    assertThat(issues.contains(new IssueKey("project:src/Example.java", "squid:S00103", 1))).isTrue();
+    assertThat(issues.contains(new IssueKey("project:src/Example.java", "squid:S00103", 42))).isTrue();
+  }
+
+  private Map<String, Multiset<IssueKey>> analyze(File oldDump, boolean delta) throws IOException {
+    File newDump = new File(temporaryFolder.newFolder(), "dump");
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.OLD_DUMP_PROPERTY, oldDump.getAbsolutePath());
+    settings.setProperty(LITSPlugin.NEW_DUMP_PROPERTY, newDump.getAbsolutePath());
+    settings.setProperty(LITSPlugin.LAZY_LOADING_PROPERTY, "true");
+    settings.setProperty(LITSPlugin.DELTA_PROPERTY, Boolean.toString(delta));
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    FilterableIssue issue = mock(FilterableIssue.class);
+    when(issue.componentKey()).thenReturn("project:src/Example.java");
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+    when(issue.line()).thenReturn(1, 42);
+    when(issue.severity()).thenReturn("INFO");
+    checker.accept(issue, chainReturnTrue);
+    checker.accept(issue, chainReturnTrue);
+    // as post phase does
+    checker.getByComponentKey("project:src/Example.java");
+
+    MessageException e = assertThrows(MessageException.class, () ->
+      checker.save());
+    assertThat(e.getMessage()).isEqualTo("Inactive rules: squid:S00104");
+    return Dump.load(newDump);
+  }
+
+  @Test
+  public void should_compare_with_several_baselines() throws Exception {
+    File otherOutput = new File(temporaryFolder.newFolder(), "dump");
+    File otherAssertion = new File(temporaryFolder.newFolder(), "assertion");
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.OTHER_OLD_DUMPS_PROPERTY, temporaryFolder.newFolder().getAbsolutePath());
+    settings.setProperty(LITSPlugin.OTHER_NEW_DUMPS_PROPERTY, otherOutput.getAbsolutePath());
+    settings.setProperty(LITSPlugin.OTHER_DIFFERENCES_PROPERTY, otherAssertion.getAbsolutePath());
+    settings.setProperty(LITSPlugin.REPORT_LIMIT_PROPERTY, "1");
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    assertThat(checker.others()).hasSize(1);
+    IssuesChecker other = checker.others().get(0);
+    FilterableIssue issue = mock(FilterableIssue.class);
+    when(issue.componentKey()).thenReturn("project:src/Example.java");
+    when(issue.ruleKey()).thenReturn(RuleKey.of("squid", "S00103"));
+    when(issue.line()).thenReturn(1);
+    when(issue.severity()).thenReturn("INFO");
+
+    // reported only according to the first baseline
+    assertThat(checker.accept(issue, chainReturnTrue)).isFalse();
+    assertThat(checker.differences).isEqualTo(0);
+    assertThat(other.differences).isEqualTo(1);
+    // nothing is collected for summaries, which are never created for other baselines
+    assertThat(other.reportLimit.componentKeys()).isEmpty();
+    other.save();
+    assertThat(new String(Files.readAllBytes(otherAssertion.toPath()), StandardCharsets.UTF_8)).isEqualTo("Issues differences: 1");
+    assertThat(Dump.load(otherOutput).get("project:src/Example.java").size()).isEqualTo(1);
+  }
+
+  @Test
+  public void baselines_must_have_outputs() {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.OTHER_OLD_DUMPS_PROPERTY, output.getAbsolutePath());
+    MessageException e = assertThrows(MessageException.class, () ->
+      new IssuesChecker(settings.asConfig(), activeRules, fileSystem));
+    assertEquals("Property 'sonar.lits.others.dump.new' must have as many values as property 'sonar.lits.others.dump.old'", e.getMessage());
+  }
+
+  @Test
+  public void paths_of_single_baseline_may_contain_commas() throws Exception {
+    File oldDump = new File(temporaryFolder.newFolder(), "old,dump");
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.OLD_DUMP_PROPERTY, oldDump.getAbsolutePath());
+    settings.setProperty(LITSPlugin.NEW_DUMP_PROPERTY, new File(temporaryFolder.newFolder(), "new,dump").getAbsolutePath());
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    assertThat(checker.others()).isEmpty();
+    checker.getBaseline();
+    assertThat(logTester.logs()).contains("Directory not found: " + oldDump);
+  }
+
+  @Test
+  public void format_must_be_supported() {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.FORMAT_PROPERTY, "unknown");
+    MessageException e = assertThrows(MessageException.class, () ->
+      new IssuesChecker(settings.asConfig(), activeRules, fileSystem));
+    assertEquals("Unsupported value 'unknown' of property 'sonar.lits.dump.format'", e.getMessage());
+  }
+
+  @Test
+  public void output_must_be_supported() {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.OUTPUT_PROPERTY, "unknown");
+    MessageException e = assertThrows(MessageException.class, () ->
+      new IssuesChecker(settings.asConfig(), activeRules, fileSystem));
+    assertEquals("Unsupported value 'unknown' of property 'sonar.lits.dump.output'", e.getMessage());
+  }
+
+  @Test
+  public void store_must_be_supported() {
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.BASELINE_STORE_PROPERTY, "unknown");
+    MessageException e = assertThrows(MessageException.class, () ->
+      new IssuesChecker(settings.asConfig(), activeRules, fileSystem));
+    assertEquals("Unsupported value 'unknown' of property 'sonar.lits.baseline.store'", e.getMessage());
+  }
+
   @Test
   public void should_fail_when_previous_issue_is_not_info() {
     FilterableIssue issue = mock(FilterableIssue.class);
@@ -174,6 +611,33 @@ public class IssuesCheckerTest {
       checker.accept(issue, chainReturnTrue));
   }
 
+  @Test
+  public void should_not_load_issues_of_components_not_analyzed() {
+    fileSystem = new DefaultFileSystem(new File("src/test/resources"));
+    checker = new IssuesChecker(newCorrectSettings().asConfig(), activeRules, fileSystem);
+
+    assertThat(checker.getPrevious()).isEmpty();
+    MessageException e = assertThrows(MessageException.class, () ->
+      checker.save());
+    assertThat(e.getMessage()).isEqualTo("Files listed in Expected directory were not analyzed: project:src/Example.java");
+  }
+
+  @Test
+  public void should_save_snapshot() {
+    File snapshotFile = new File(output.getParentFile(), "snapshot");
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.SNAPSHOT_PROPERTY, snapshotFile.getAbsolutePath());
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+
+    checker.checkpoint(Snapshot.FILTERED, Collections.singletonList("project:src/Example.java"));
+    Snapshot snapshot = Snapshot.read(snapshotFile);
+    assertThat(snapshot.analyzedComponentKeys).containsOnly("project:src/Example.java");
+    assertThat(snapshot.previous.get("project:src/Example.java").size()).isEqualTo(2);
+
+    checker.save();
+    assertThat(snapshotFile).doesNotExist();
+  }
+
   @Test
   public void should_fail_when_inactive_rules() {
     checker.inactiveRule("squid:S00103");
@@ -191,7 +655,7 @@ public class IssuesCheckerTest {
     settings.setProperty(LITSPlugin.OLD_DUMP_PROPERTY, nonExistingPath);
     settings.setProperty(LITSPlugin.NEW_DUMP_PROPERTY, nonExistingPath);
     settings.setProperty(LITSPlugin.DIFFERENCES_PROPERTY, nonExistingPath);
-    checker = new IssuesChecker(settings.asConfig(), activeRules);
+    checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
 
     Map previous = checker.getPrevious();
 
@@ -234,6 +698,23 @@ public class IssuesCheckerTest {
     assertThat(output).exists();
   }
 
+  @Test
+  public void baseline_digest_should_identify_previous_dump() throws Exception {
+    File oldDump = temporaryFolder.newFolder();
+    MapSettings settings = newCorrectSettings();
+    settings.setProperty(LITSPlugin.OLD_DUMP_PROPERTY, oldDump.getAbsolutePath());
+    settings.setProperty(LITSPlugin.ANALYZER_FINGERPRINT_PROPERTY, "v1");
+    Dump.save(Collections.singletonList(new IssueKey("project:src/Example.java", "squid:S00103", 1)), oldDump);
+    String digest = new IssuesChecker(settings.asConfig(), activeRules, fileSystem).baselineDigest();
+    Dump.save(Collections.singletonList(new IssueKey("project:src/Example.java", "squid:S00103", 2)), oldDump);
+
+    assertThat(digest).isNotNull();
+    assertThat(new IssuesChecker(settings.asConfig(), activeRules, fileSystem).baselineDigest()).isNotNull().isNotEqualTo(digest);
+    // without manifest
+    settings.setProperty(LITSPlugin.OLD_DUMP_PROPERTY, new File("src/test/resources/").getAbsolutePath());
+    assertThat(new IssuesChecker(settings.asConfig(), activeRules, fileSystem).baselineDigest()).isNull();
+  }
+
   private MapSettings newCorrectSettings() {
     MapSettings settings = new MapSettings();
     settings.setProperty(LITSPlugin.OLD_DUMP_PROPERTY, new File("src/test/resources/").getAbsolutePath());
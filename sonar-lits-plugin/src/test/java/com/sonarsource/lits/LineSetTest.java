@@ -0,0 +1,100 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class LineSetTest {
+
+  @Test
+  public void add_remove() {
+    LineSet lines = new LineSet();
+    lines.add(3);
+    lines.add(1);
+    lines.add(3);
+    lines.add(70_000);
+    assertThat(lines.size()).isEqualTo(4);
+    assertThat(toList(lines)).containsExactly(1, 3, 3, 70_000);
+
+    assertThat(lines.remove(3)).isTrue();
+    assertThat(lines.contains(3)).isTrue();
+    assertThat(lines.remove(3)).isTrue();
+    assertThat(lines.contains(3)).isFalse();
+    assertThat(lines.remove(3)).isFalse();
+    assertThat(lines.remove(2)).isFalse();
+    assertThat(lines.remove(70_000)).isTrue();
+    assertThat(lines.remove(70_000)).isFalse();
+    assertThat(toList(lines)).containsExactly(1);
+  }
+
+  @Test
+  public void dense_lines() {
+    LineSet lines = new LineSet();
+    for (int line = 1; line <= 10_000; line++) {
+      lines.add(line);
+    }
+    lines.optimize();
+    assertThat(lines.size()).isEqualTo(10_000);
+    assertThat(lines.contains(5_000)).isTrue();
+
+    for (int line = 1; line <= 10_000; line += 2) {
+      assertThat(lines.remove(line)).isTrue();
+    }
+    assertThat(lines.size()).isEqualTo(5_000);
+    assertThat(lines.contains(5_000)).isTrue();
+    assertThat(lines.contains(5_001)).isFalse();
+
+    for (int line = 2; line <= 10_000; line += 2) {
+      assertThat(lines.remove(line)).isTrue();
+    }
+    assertThat(lines.isEmpty()).isTrue();
+  }
+
+  @Test
+  public void write_read() throws Exception {
+    LineSet lines = new LineSet();
+    for (int line = 0; line < 100_000; line += line < 50_000 ? 1 : 7) {
+      lines.add(line);
+    }
+    lines.add(42);
+    lines.optimize();
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    lines.write(new DataOutputStream(bytes));
+    // runs are much smaller than one int per line
+    assertThat(bytes.size()).isLessThan(20_000);
+    LineSet result = LineSet.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertThat(result.size()).isEqualTo(lines.size());
+    assertThat(toList(result)).isEqualTo(toList(lines));
+  }
+
+  private static List<Integer> toList(LineSet lines) {
+    List<Integer> result = new ArrayList<>();
+    lines.forEach(result::add);
+    return result;
+  }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MovedIssuesTest {
+
+  @Test
+  public void should_pair_issues_of_same_rule_within_window() {
+    Multiset<IssueKey> missingIssues = Multiset.create();
+    for (int line : new int[] {1, 3, 10, 20}) {
+      missingIssues.add(new IssueKey("component", "repo:a", line));
+    }
+    missingIssues.add(new IssueKey("component", "repo:b", 5));
+    List<IssueKey> newIssues = new ArrayList<>();
+    for (int line : new int[] {2, 4, 15, 21}) {
+      newIssues.add(new IssueKey("component", "repo:a", line));
+    }
+    newIssues.add(new IssueKey("component", "repo:b", 6));
+    newIssues.add(new IssueKey("component", "repo:c", 6));
+
+    assertThat(MovedIssues.match(newIssues, issueKey -> issueKey, missingIssues, 2)).isEqualTo(4);
+
+    assertThat(newIssues).containsExactly(
+      new IssueKey("component", "repo:a", 15),
+      new IssueKey("component", "repo:c", 6));
+    assertThat(missingIssues.size()).isEqualTo(1);
+    assertThat(missingIssues.contains(new IssueKey("component", "repo:a", 10))).isTrue();
+  }
+
+  @Test
+  public void should_not_pair_issues_outside_of_window() {
+    Multiset<IssueKey> missingIssues = Multiset.create();
+    missingIssues.add(new IssueKey("component", "repo:a", 1));
+    List<IssueKey> newIssues = new ArrayList<>();
+    newIssues.add(new IssueKey("component", "repo:a", 4));
+
+    assertThat(MovedIssues.match(newIssues, issueKey -> issueKey, missingIssues, 2)).isEqualTo(0);
+
+    assertThat(newIssues).hasSize(1);
+    assertThat(missingIssues.size()).isEqualTo(1);
+  }
+
+}
@@ -21,6 +21,7 @@ import java.util.List;
 import org.junit.Test;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
 
 public class MultisetTest {
 
@@ -50,4 +51,15 @@ public class MultisetTest {
     assertThat(values).containsExactly("value");
     assertThat(multiset.size()).isEqualTo(1);
   }
+
+  @Test
+  public void empty_should_be_shared_and_immutable() {
+    Multiset<String> empty = Multiset.empty();
+
+    assertThat(empty).isSameAs(Multiset.<Integer>empty());
+    assertThat(empty.isEmpty()).isTrue();
+    assertThat(empty.remove("value")).isFalse();
+    assertThrows(UnsupportedOperationException.class, () -> empty.add("value"));
+    assertThat(empty.size()).isEqualTo(0);
+  }
 }
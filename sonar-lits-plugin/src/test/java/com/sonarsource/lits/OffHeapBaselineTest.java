@@ -0,0 +1,40 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.Map;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class OffHeapBaselineTest {
+
+  @Test
+  public void should_grow() {
+    OffHeapBaseline baseline = new OffHeapBaseline();
+    for (int line = 0; line < 100_000; line++) {
+      baseline.add("component" + (line % 10), "repo:rule" + (line % 3), line);
+    }
+    assertThat(baseline.remove(new IssueKey("component1", "repo:rule1", 1))).isTrue();
+
+    Map<String, Multiset<IssueKey>> remaining = baseline.remaining();
+    assertThat(remaining).hasSize(10);
+    assertThat(remaining.get("component1").size()).isEqualTo(9_999);
+    assertThat(remaining.get("component2").size()).isEqualTo(10_000);
+  }
+
+}
@@ -0,0 +1,282 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.io.File;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.sonarsource.scanner.engine.sensor.test.fixtures.SensorContextTester;
+import com.sonarsource.scanner.engine.sensor.test.fixtures.TestInputFileBuilder;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.notifications.AnalysisWarnings;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.api.scan.issue.filter.FilterableIssue;
+import org.sonar.scanner.plugin.api.impl.config.MapSettings;
+import org.sonar.scanner.plugin.api.impl.fs.DefaultFileSystem;
+import org.sonar.scanner.plugin.api.impl.fs.FileMetadata;
+import org.sonar.scanner.plugin.api.impl.rule.ActiveRulesBuilder;
+import org.sonar.scanner.plugin.api.impl.rule.NewActiveRule;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Drives {@link IssuesChecker} and {@link DumpPhase} in process through two analyses of a synthetic project,
+ * and reports wall time, allocation and peak heap of each phase.
+ *
+ * <p>Skipped unless {@code -Dlits.perf=true}. Size of project is controlled by {@code lits.perf.files},
+ * {@code lits.perf.rules}, {@code lits.perf.issuesPerFile} and {@code lits.perf.changed} (per mille of issues,
+ * which differ between analyses). System properties starting with {@code sonar.lits.} are passed to the plugin,
+ * for example {@code -Dsonar.lits.baseline.store=bitmap}.
+ *
+ * <p>Allocation is measured only for the thread running the test, so loading done by background threads is not included.
+ *
+ * <p>Report is printed to standard output rather than logged, so that it is visible whatever is the logging configuration
+ * of the build. This never happens in regular builds, since the harness is skipped.
+ */
+public class PerformanceHarnessTest {
+
+  private static final int FILES = Integer.getInteger("lits.perf.files", 5_000);
+  private static final int RULES = Integer.getInteger("lits.perf.rules", 50);
+  private static final int ISSUES_PER_FILE = Integer.getInteger("lits.perf.issuesPerFile", 400);
+  private static final int CHANGED = Integer.getInteger("lits.perf.changed", 10);
+  private static final int LINES = 1_000;
+  private static final Integer[] LINE_NUMBERS = new Integer[LINES + 1];
+
+  static {
+    for (int line = 0; line <= LINES; line++) {
+      LINE_NUMBERS[line] = line;
+    }
+  }
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File baseDir;
+  private DefaultFileSystem fileSystem;
+  private ActiveRules activeRules;
+  private final List<InputFile> inputFiles = new ArrayList<>();
+  private final List<RuleKey> ruleKeys = new ArrayList<>();
+
+  @Before
+  public void setup() throws Exception {
+    assumeTrue(Boolean.getBoolean("lits.perf"));
+
+    baseDir = temporaryFolder.newFolder();
+    fileSystem = new DefaultFileSystem(baseDir);
+    fileSystem.setWorkDir(temporaryFolder.newFolder().toPath());
+    StringBuilder content = new StringBuilder();
+    for (int line = 1; line <= LINES; line++) {
+      content.append("line ").append(line).append('\n');
+    }
+    FileMetadata fileMetadata = new FileMetadata(mock(AnalysisWarnings.class));
+    for (int i = 0; i < FILES; i++) {
+      InputFile inputFile = TestInputFileBuilder.create("project", "src/dir" + (i % 100) + "/File" + i + ".java")
+        .setLanguage("java")
+        .setMetadata(fileMetadata.readMetadata(new StringReader(content.toString())))
+        .build();
+      fileSystem.add(inputFile);
+      inputFiles.add(inputFile);
+    }
+
+    ActiveRulesBuilder builder = new ActiveRulesBuilder();
+    for (int i = 0; i < RULES; i++) {
+      RuleKey ruleKey = RuleKey.of("repo", "R" + i);
+      ruleKeys.add(ruleKey);
+      builder.addRule(new NewActiveRule.Builder()
+        .setRuleKey(ruleKey)
+        .setSeverity(RulePriority.INFO.toString())
+        .build());
+    }
+    activeRules = builder.build();
+  }
+
+  @Test
+  public void two_analyses() throws Exception {
+    File first = new File(temporaryFolder.getRoot(), "first");
+    File second = new File(temporaryFolder.getRoot(), "second");
+    File differences = new File(temporaryFolder.getRoot(), "differences");
+
+    System.out.printf(Locale.ROOT, "LITS harness: %d files, %d rules, %d issues, %d per mille changed%n",
+      FILES, RULES, (long) FILES * ISSUES_PER_FILE, CHANGED);
+    analysis("first", new File(temporaryFolder.getRoot(), "none"), first, differences, 0);
+    analysis("second", first, second, differences, CHANGED);
+
+    assertThat(new String(Files.readAllBytes(differences.toPath()), StandardCharsets.UTF_8)).startsWith("Issues differences: ");
+  }
+
+  private void analysis(String name, File oldDump, File newDump, File differences, int changed) {
+    MapSettings settings = new MapSettings();
+    for (Map.Entry<Object, Object> property : System.getProperties().entrySet()) {
+      if (property.getKey().toString().startsWith("sonar.lits.")) {
+        settings.setProperty(property.getKey().toString(), property.getValue().toString());
+      }
+    }
+    settings.setProperty(LITSPlugin.OLD_DUMP_PROPERTY, oldDump.getAbsolutePath());
+    settings.setProperty(LITSPlugin.NEW_DUMP_PROPERTY, newDump.getAbsolutePath());
+    settings.setProperty(LITSPlugin.DIFFERENCES_PROPERTY, differences.getAbsolutePath());
+
+    Measurement measurement = new Measurement();
+    IssuesChecker checker = new IssuesChecker(settings.asConfig(), activeRules, fileSystem);
+    checker.getBaseline();
+    measurement.report(name + " load");
+
+    SyntheticIssue issue = new SyntheticIssue();
+    int accepted = 0;
+    for (int file = 0; file < FILES; file++) {
+      issue.componentKey = inputFiles.get(file).key();
+      for (int i = 0; i < ISSUES_PER_FILE; i++) {
+        issue.ruleKey = ruleKeys.get((file * 31 + i) % RULES);
+        int line = 1 + (i * 7 + file) % LINES;
+        if (Math.floorMod((file * 1_000_003 + i) * 0x9E3779B9, 1000) < changed) {
+          // moves issue to the next line
+          line = 1 + line % LINES;
+        }
+        issue.line = LINE_NUMBERS[line];
+        if (checker.accept(issue, filterableIssue -> true)) {
+          accepted++;
+        }
+      }
+    }
+    measurement.report(name + " filter");
+
+    SensorContextTester context = SensorContextTester.create(baseDir);
+    context.setFileSystem(fileSystem);
+    new DumpPhase(checker, activeRules).execute(context);
+    measurement.report(name + " post");
+    System.out.printf(Locale.ROOT, "%s: %d issues reported by filter, %d by post phase%n", name, accepted, context.allIssues().size());
+  }
+
+  /**
+   * Measures interval since creation or previous report.
+   */
+  private static final class Measurement {
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private long start;
+    private long allocated;
+
+    Measurement() {
+      reset();
+    }
+
+    private void reset() {
+      System.gc();
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP) {
+          pool.resetPeakUsage();
+        }
+      }
+      allocated = allocatedBytes();
+      start = System.nanoTime();
+    }
+
+    void report(String phase) {
+      long duration = System.nanoTime() - start;
+      long allocation = allocatedBytes() - allocated;
+      long peak = 0;
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP) {
+          peak += pool.getPeakUsage().getUsed();
+        }
+      }
+      System.out.printf(Locale.ROOT, "%-16s %8d ms %8d MB allocated %8d MB peak heap%n",
+        phase, duration / 1_000_000, allocation >> 20, peak >> 20);
+      reset();
+    }
+
+    private long allocatedBytes() {
+      if (threads instanceof com.sun.management.ThreadMXBean) {
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+      return 0;
+    }
+  }
+
+  /**
+   * Single mutable issue with boxed line numbers shared between issues, so that the harness itself doesn't allocate per issue.
+   */
+  private static final class SyntheticIssue implements FilterableIssue {
+    private String componentKey;
+    private RuleKey ruleKey;
+    private Integer line;
+
+    @Override
+    public String componentKey() {
+      return componentKey;
+    }
+
+    @Override
+    public RuleKey ruleKey() {
+      return ruleKey;
+    }
+
+    @Override
+    public String severity() {
+      return "INFO";
+    }
+
+    @Override
+    public String message() {
+      return "Synthetic";
+    }
+
+    @Override
+    public Integer line() {
+      return line;
+    }
+
+    @Override
+    public Double gap() {
+      return null;
+    }
+
+    @Override
+    public TextRange textRange() {
+      return null;
+    }
+
+    /**
+     * Not annotated, since declared only by older versions of API.
+     */
+    public String projectKey() {
+      return "project";
+    }
+
+    @Override
+    public String toString() {
+      return componentKey + ":" + ruleKey + ":" + line;
+    }
+  }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.sonar.api.utils.MessageException;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+public class RemoteBaselineTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File dir;
+  private BaselineServer server;
+  private Thread thread;
+
+  @Before
+  public void setup() throws Exception {
+    dir = temporaryFolder.newFolder();
+    List<IssueKey> issues = new ArrayList<>();
+    issues.add(new IssueKey("componentKey1", "repoKey:ruleKey", 1));
+    issues.add(new IssueKey("componentKey1", "repoKey:ruleKey", 1));
+    issues.add(new IssueKey("componentKey2", "repoKey:ruleKey", 2));
+    Dump.save(issues, dir);
+
+    server = new BaselineServer(dir, 0);
+    thread = new Thread(() -> {
+      try {
+        server.serve();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    thread.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.close();
+    thread.join();
+  }
+
+  @Test
+  public void consume_remote_findings() {
+    RemoteBaseline baseline = RemoteBaseline.connect(server.port(), dir);
+    assertThat(baseline).isNotNull();
+    assertThat(baseline.componentKeys()).containsOnly("componentKey1", "componentKey2");
+
+    assertThat(baseline.remove(new IssueKey("componentKey1", "repoKey:ruleKey", 1))).isTrue();
+    assertThat(baseline.remove(new IssueKey("componentKey1", "repoKey:ruleKey", 2))).isFalse();
+    assertThat(baseline.remove(new IssueKey("componentKey3", "repoKey:ruleKey", 1))).isFalse();
+    assertThat(baseline.remaining().get("componentKey1").size()).isEqualTo(1);
+    assertThat(baseline.remaining().get("componentKey3")).isNull();
+    assertThat(baseline.remaining().keySet()).containsOnly("componentKey1", "componentKey2");
+    baseline.close();
+
+    // findings on server are not consumed
+    baseline = RemoteBaseline.connect(server.port(), dir);
+    assertThat(baseline.remaining().get("componentKey1").size()).isEqualTo(2);
+    baseline.close();
+  }
+
+  @Test
+  public void request_only_accepted_components() {
+    RemoteBaseline baseline = RemoteBaseline.connect(server.port(), dir);
+    Map<String, Multiset<IssueKey>> remaining = baseline.remaining("componentKey2"::equals);
+    assertThat(remaining.get("componentKey1")).isNull();
+    assertThat(remaining.keySet()).containsOnly("componentKey2");
+    assertThat(remaining.get("componentKey2").size()).isEqualTo(1);
+    baseline.close();
+  }
+
+  @Test
+  public void reload_when_dump_changes() {
+    RemoteBaseline baseline = RemoteBaseline.connect(server.port(), dir);
+    assertThat(baseline.componentKeys()).containsOnly("componentKey1", "componentKey2");
+    baseline.close();
+
+    List<IssueKey> issues = new ArrayList<>();
+    issues.add(new IssueKey("componentKey1", "repoKey:ruleKey", 1));
+    issues.add(new IssueKey("componentKey2", "repoKey:ruleKey", 2));
+    issues.add(new IssueKey("componentKey3", "repoKey:otherRuleKey", 1));
+    Dump.save(issues, dir);
+
+    baseline = RemoteBaseline.connect(server.port(), dir);
+    assertThat(baseline.componentKeys()).containsOnly("componentKey1", "componentKey2", "componentKey3");
+    baseline.close();
+  }
+
+  @Test
+  public void refuse_dump_not_matching_manifest() throws Exception {
+    Files.write(new File(dir, "repoKey-ruleKey.json").toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+
+    assertThat(RemoteBaseline.connect(server.port(), dir)).isNull();
+  }
+
+  @Test
+  public void not_available_when_server_does_not_respond() throws Exception {
+    try (ServerSocket hung = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      Thread accept = new Thread(() -> {
+        try (Socket socket = hung.accept()) {
+          // never answers
+          Thread.sleep(5_000);
+        } catch (IOException | InterruptedException e) {
+          // closed by test
+        }
+      });
+      accept.start();
+
+      assertThat(RemoteBaseline.connect(hung.getLocalPort(), dir, 100)).isNull();
+      accept.interrupt();
+      accept.join();
+    }
+  }
+
+  @Test
+  public void fail_when_server_stops_responding() throws Exception {
+    try (ServerSocket hung = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      Thread accept = new Thread(() -> {
+        try (Socket socket = hung.accept()) {
+          DataInputStream in = new DataInputStream(socket.getInputStream());
+          DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+          in.readByte();
+          in.readUTF();
+          out.writeBoolean(true);
+          in.readByte();
+          BaselineServer.writeStrings(out, Collections.singletonList("componentKey1"));
+          out.flush();
+          // never answers requests of components
+          Thread.sleep(5_000);
+        } catch (IOException | InterruptedException e) {
+          // closed by test
+        }
+      });
+      accept.start();
+
+      RemoteBaseline baseline = RemoteBaseline.connect(hung.getLocalPort(), dir, 100);
+      assertThat(baseline).isNotNull();
+      MessageException e = assertThrows(MessageException.class, () ->
+        baseline.remove(new IssueKey("componentKey1", "repoKey:ruleKey", 1)));
+      assertThat(e.getMessage()).isEqualTo("Baseline server on port " + hung.getLocalPort() + " did not respond within 100 ms");
+      baseline.close();
+      accept.interrupt();
+      accept.join();
+    }
+  }
+
+  @Test
+  public void server_should_run_without_plugin_api() throws Exception {
+    int port;
+    try (ServerSocket free = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      port = free.getLocalPort();
+    }
+    // classes of plugin only, as in plugin jar
+    String classes = new File(BaselineServer.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    Process process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(), "-cp", classes,
+      BaselineServer.class.getName(), dir.getPath(), Integer.toString(port))
+      .redirectErrorStream(true)
+      .redirectOutput(temporaryFolder.newFile())
+      .start();
+    try {
+      RemoteBaseline baseline = null;
+      for (int attempt = 0; baseline == null && attempt < 100 && process.isAlive(); attempt++) {
+        Thread.sleep(100);
+        baseline = RemoteBaseline.connect(port, dir);
+      }
+      assertThat(baseline).isNotNull();
+      assertThat(baseline.componentKeys()).containsOnly("componentKey1", "componentKey2");
+      assertThat(baseline.remaining().get("componentKey1").size()).isEqualTo(2);
+      baseline.close();
+    } finally {
+      process.destroy();
+      process.waitFor();
+    }
+  }
+
+  @Test
+  public void not_available() throws Exception {
+    assertThat(RemoteBaseline.connect(server.port(), temporaryFolder.newFolder())).isNull();
+
+    server.close();
+    assertThat(RemoteBaseline.connect(server.port(), dir)).isNull();
+  }
+
+}
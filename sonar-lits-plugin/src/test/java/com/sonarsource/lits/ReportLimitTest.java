@@ -0,0 +1,65 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.Map;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ReportLimitTest {
+
+  @Test
+  public void unlimited() {
+    ReportLimit limit = new ReportLimit(0);
+    for (int line = 1; line <= 10; line++) {
+      assertThat(limit.report(new IssueKey("component", "repo:rule", line), false)).isTrue();
+    }
+    assertThat(limit.componentKeys()).isEmpty();
+    assertThat(limit.remove("component")).isEmpty();
+  }
+
+  @Test
+  public void should_collect_issues_beyond_limit() {
+    ReportLimit limit = new ReportLimit(2);
+    assertThat(limit.report(new IssueKey("component", "repo:rule", 1), false)).isTrue();
+    assertThat(limit.report(new IssueKey("component", "repo:rule", 2), true)).isTrue();
+    assertThat(limit.report(new IssueKey("component", "repo:rule", 5), false)).isFalse();
+    assertThat(limit.report(new IssueKey("component", "repo:rule", 4), true)).isFalse();
+    assertThat(limit.report(new IssueKey("component", "repo:rule", 3), false)).isFalse();
+    assertThat(limit.report(new IssueKey("component", "repo:other", 1), false)).isTrue();
+    assertThat(limit.report(new IssueKey("other", "repo:rule", 1), false)).isTrue();
+
+    Map<String, ReportLimit.Overflow> overflows = limit.remove("component");
+    assertThat(overflows.keySet()).containsOnly("repo:rule");
+    assertThat(overflows.get("repo:rule").message()).isEqualTo("2 new at lines 3 5, 1 missing at lines 4 beyond limit of 2 issues");
+    assertThat(limit.componentKeys()).containsOnly("other");
+    assertThat(limit.remove("other")).isEmpty();
+  }
+
+  @Test
+  public void should_shorten_list_of_lines() {
+    ReportLimit limit = new ReportLimit(1);
+    for (int line = 0; line <= 1000; line++) {
+      limit.report(new IssueKey("component", "repo:rule", line), true);
+    }
+    String message = limit.remove("component").get("repo:rule").message();
+    assertThat(message).startsWith("1000 missing at lines 1 2 3 ");
+    assertThat(message).endsWith(" 200 ... beyond limit of 1 issues");
+  }
+
+}
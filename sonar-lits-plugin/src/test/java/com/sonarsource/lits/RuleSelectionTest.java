@@ -0,0 +1,55 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class RuleSelectionTest {
+
+  @Test
+  public void all() {
+    assertThat(RuleSelection.of().isAll()).isTrue();
+    assertThat(RuleSelection.of(" ", "").isAll()).isTrue();
+    assertThat(RuleSelection.ALL.contains("squid:S1")).isTrue();
+    assertThat(RuleSelection.ALL.contains(RuleKey.of("squid", "S1"))).isTrue();
+  }
+
+  @Test
+  public void should_select_rules_by_key_or_pattern() {
+    RuleSelection selection = RuleSelection.of("squid:S1", " cpp:S1* ");
+    assertThat(selection.isAll()).isFalse();
+    assertThat(selection.contains("squid:S1")).isTrue();
+    assertThat(selection.contains("squid:S10")).isFalse();
+    assertThat(selection.contains("cpp:S1")).isTrue();
+    assertThat(selection.contains("cpp:S100")).isTrue();
+    assertThat(selection.contains("cpp:S2")).isFalse();
+    assertThat(selection.contains(RuleKey.of("cpp", "S100"))).isTrue();
+    assertThat(selection.contains(RuleKey.of("squid", "S2"))).isFalse();
+    assertThat(selection.toString()).isEqualTo("squid:S1,cpp:S1*");
+  }
+
+  @Test
+  public void should_not_interpret_other_characters() {
+    RuleSelection selection = RuleSelection.of("a.b:S(1)");
+    assertThat(selection.contains("a.b:S(1)")).isTrue();
+    assertThat(selection.contains("axb:S(1)")).isFalse();
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertThrows;
+
+public class SampleTest {
+
+  @Test
+  public void full() {
+    assertThat(Sample.ALL.isFull()).isTrue();
+    assertThat(Sample.ALL.contains("")).isTrue();
+    assertThat(Sample.ALL.contains("project:src/Example.java")).isTrue();
+  }
+
+  @Test
+  public void should_select_fraction_of_components() {
+    Sample sample = new Sample(0.1);
+    Sample same = new Sample(0.1);
+    Sample larger = new Sample(0.5);
+    int selected = 0;
+    for (int i = 0; i < 10_000; i++) {
+      String componentKey = "project:src/dir" + (i % 100) + "/File" + i + ".java";
+      if (sample.contains(componentKey)) {
+        selected++;
+        assertThat(same.contains(componentKey)).isTrue();
+        assertThat(larger.contains(componentKey)).isTrue();
+      }
+    }
+    assertThat(sample.isFull()).isFalse();
+    assertThat(selected).isGreaterThan(800).isLessThan(1200);
+  }
+
+  @Test
+  public void rate_must_be_valid() {
+    assertThrows(IllegalArgumentException.class, () -> new Sample(0));
+    assertThrows(IllegalArgumentException.class, () -> new Sample(1.5));
+  }
+
+}
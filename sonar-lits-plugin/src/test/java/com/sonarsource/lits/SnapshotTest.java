@@ -0,0 +1,101 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SnapshotTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void write_read() throws Exception {
+    Snapshot snapshot = new Snapshot();
+    snapshot.phase = Snapshot.FILTERED;
+    snapshot.newDumpFile = new File("/dump");
+    snapshot.differencesFile = new File("/differences");
+    snapshot.reuseOutput = true;
+    snapshot.compactOutput = true;
+    snapshot.sampleRate = 0.25;
+    snapshot.selectedRules = "squid:S1*";
+    snapshot.lineWindow = 3;
+    snapshot.different = true;
+    snapshot.differences = 2;
+    snapshot.moved = 1;
+    snapshot.degradationReason = "reason";
+    snapshot.inactiveRules = Collections.singletonList("repoKey:inactive");
+    snapshot.missingResources = Collections.singletonList("missing");
+    snapshot.histogram.addNew(new IssueKey("componentKey", "repoKey:ruleKey", 1));
+    snapshot.activeRuleKeys = Collections.singletonList("repoKey:ruleKey");
+    snapshot.analyzedComponentKeys = Arrays.asList("componentKey", "otherComponentKey");
+    Map<String, Multiset<IssueKey>> previous = new HashMap<>();
+    Multiset<IssueKey> componentIssues = Multiset.create();
+    componentIssues.add(new IssueKey("componentKey", "repoKey:ruleKey", 2));
+    componentIssues.add(new IssueKey("componentKey", "repoKey:ruleKey", 2));
+    previous.put("componentKey", componentIssues);
+    snapshot.previous = previous;
+    Map<String, List<IssuesChecker.DeferredIssue>> deferred = new HashMap<>();
+    deferred.put("componentKey", Collections.singletonList(new IssuesChecker.DeferredIssue(new IssueKey("componentKey", "repoKey:ruleKey", 3), null)));
+    snapshot.deferred = deferred;
+    snapshot.issues = Arrays.asList(new IssueKey("componentKey", "repoKey:ruleKey", 1), new IssueKey("componentKey", "repoKey:ruleKey", 3));
+
+    File file = temporaryFolder.newFile();
+    snapshot.write(file);
+    Snapshot result = Snapshot.read(file);
+
+    assertThat(result.phase).isEqualTo(Snapshot.FILTERED);
+    assertThat(result.newDumpFile).isEqualTo(new File("/dump"));
+    assertThat(result.differencesFile).isEqualTo(new File("/differences"));
+    assertThat(result.reuseOutput).isTrue();
+    assertThat(result.compactOutput).isTrue();
+    assertThat(result.sampleRate).isEqualTo(0.25);
+    assertThat(result.selectedRules).isEqualTo("squid:S1*");
+    assertThat(result.lineWindow).isEqualTo(3);
+    assertThat(result.different).isTrue();
+    assertThat(result.differences).isEqualTo(2);
+    assertThat(result.moved).isEqualTo(1);
+    assertThat(result.degradationReason).isEqualTo("reason");
+    assertThat(result.inactiveRules).containsOnly("repoKey:inactive");
+    assertThat(result.missingResources).containsOnly("missing");
+    assertThat(result.histogram.isEmpty()).isFalse();
+    assertThat(result.activeRuleKeys).containsOnly("repoKey:ruleKey");
+    assertThat(result.analyzedComponentKeys).containsExactly("componentKey", "otherComponentKey");
+    assertThat(result.previous.keySet()).containsOnly("componentKey");
+    assertThat(result.previous.get("componentKey").size()).isEqualTo(2);
+    assertThat(result.previous.get("componentKey").remove(new IssueKey("componentKey", "repoKey:ruleKey", 2))).isTrue();
+    assertThat(result.deferred.get("componentKey")).hasSize(1);
+    assertThat(result.deferred.get("componentKey").get(0).issueKey).isEqualTo(new IssueKey("componentKey", "repoKey:ruleKey", 3));
+    assertThat(result.deferred.get("componentKey").get(0).message).isNull();
+    List<IssueKey> issues = new ArrayList<>();
+    result.issues.forEach(issues::add);
+    assertThat(issues).containsExactly(new IssueKey("componentKey", "repoKey:ruleKey", 1), new IssueKey("componentKey", "repoKey:ruleKey", 3));
+  }
+
+}
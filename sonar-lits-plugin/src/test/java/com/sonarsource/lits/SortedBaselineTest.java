@@ -0,0 +1,47 @@
+/*
+ * Sonar LITS Plugin
+ * Copyright (C) SonarSource Sàrl
+ * mailto:info AT sonarsource DOT com
+ *
+ * You can redistribute and/or modify this program under the terms of
+ * the Sonar Source-Available License Version 1, as published by SonarSource Sàrl.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the Sonar Source-Available License for more details.
+ *
+ * You should have received a copy of the Sonar Source-Available License
+ * along with this program; if not, see https://sonarsource.com/license/ssal/
+ */
+package com.sonarsource.lits;
+
+import java.util.Map;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class SortedBaselineTest {
+
+  @Test
+  public void should_sort_keys_added_out_of_order() {
+    SortedBaseline baseline = new SortedBaseline();
+    for (int line = 100; line > 0; line--) {
+      baseline.add("component", "repo:rule" + (line % 3), line);
+    }
+    assertThat(baseline.remove(new IssueKey("component", "repo:rule1", 1))).isTrue();
+    // added after consumption, as with lazy loading of rules
+    baseline.add("component", "repo:rule1", 1);
+    baseline.add("component", "repo:rule0", 3);
+
+    assertThat(baseline.remove(new IssueKey("component", "repo:rule0", 3))).isTrue();
+    assertThat(baseline.remove(new IssueKey("component", "repo:rule0", 3))).isTrue();
+    assertThat(baseline.remove(new IssueKey("component", "repo:rule0", 3))).isFalse();
+
+    Map<String, Multiset<IssueKey>> remaining = baseline.remaining();
+    assertThat(remaining.get("component").size()).isEqualTo(99);
+    assertThat(remaining.get("component").contains(new IssueKey("component", "repo:rule1", 1))).isTrue();
+    assertThat(remaining.get("component").contains(new IssueKey("component", "repo:rule0", 3))).isFalse();
+  }
+
+}